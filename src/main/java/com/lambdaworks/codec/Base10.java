@@ -0,0 +1,329 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * High-performance base10 (decimal) codec that formats and parses ASCII
+ * numbers directly from and to bytes without intermediate strings.
+ *
+ * Doubles are formatted with the fewest fraction digits that parse back to
+ * the identical value, which covers the integral and short decimal values
+ * typical of scores and counters. Values that need more than 17 significant
+ * digits, or are not finite, fall back to {@link Double#toString}.
+ *
+ * @author Will Glozer
+ */
+public class Base10 {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(ASCII);
+    private static final byte[] TENS = new byte[100];
+    private static final byte[] ONES = new byte[100];
+    private static final double[] POW10 = new double[23];
+    private static final long[] LONG_POW10 = new long[19];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            TENS[i] = (byte) ('0' + i / 10);
+            ONES[i] = (byte) ('0' + i % 10);
+        }
+
+        double pow = 1;
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = pow;
+            pow *= 10;
+        }
+
+        LONG_POW10[0] = 1;
+        for (int i = 1; i < LONG_POW10.length; i++) {
+            LONG_POW10[i] = LONG_POW10[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Get the number of bytes required to encode a long.
+     *
+     * @param value Value to encode.
+     *
+     * @return Encoded length.
+     */
+    public static int length(long value) {
+        if (value < 0) {
+            return (value == Long.MIN_VALUE) ? MIN_LONG.length : length(-value) + 1;
+        }
+        for (int i = 1; i < LONG_POW10.length; i++) {
+            if (value < LONG_POW10[i]) return i;
+        }
+        return LONG_POW10.length;
+    }
+
+    /**
+     * Write the decimal representation of a long.
+     *
+     * @param dst       Destination array.
+     * @param offset    Offset to start writing at.
+     * @param value     Value to write.
+     *
+     * @return Offset following the last byte written.
+     */
+    public static int write(byte[] dst, int offset, long value) {
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(MIN_LONG, 0, dst, offset, MIN_LONG.length);
+            return offset + MIN_LONG.length;
+        }
+
+        int end = offset + length(value);
+        if (value < 0) {
+            digits(dst, end, -value);
+            dst[offset] = '-';
+        } else {
+            digits(dst, end, value);
+        }
+
+        return end;
+    }
+
+    /**
+     * Encode a long as decimal bytes.
+     *
+     * @param value Value to encode.
+     *
+     * @return Encoded bytes.
+     */
+    public static byte[] encode(long value) {
+        byte[] dst = new byte[length(value)];
+        write(dst, 0, value);
+        return dst;
+    }
+
+    /**
+     * Find the fewest fraction digits required to represent a double exactly
+     * enough that it will be parsed back to the same value.
+     *
+     * @param value Value to encode.
+     *
+     * @return Number of fraction digits, or -1 if the value cannot be written
+     *         by {@link #write(byte[], int, double, int)}.
+     */
+    public static int scale(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return -1;
+
+        for (int scale = 0; scale < 18; scale++) {
+            double scaled = value * POW10[scale];
+            if (Math.abs(scaled) >= 0x1p53) break;
+            if (Math.round(scaled) / POW10[scale] == value) return scale;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the number of bytes required to encode a double with the
+     * supplied {@link #scale}.
+     *
+     * @param value Value to encode.
+     * @param scale Number of fraction digits.
+     *
+     * @return Encoded length.
+     */
+    public static int length(double value, int scale) {
+        long digits = Math.abs(Math.round(value * POW10[scale]));
+        int length = length(digits);
+        if (scale > 0) length = Math.max(length, scale + 1) + 1;
+        return Double.doubleToRawLongBits(value) < 0 ? length + 1 : length;
+    }
+
+    /**
+     * Write the decimal representation of a double with the supplied {@link #scale}.
+     *
+     * @param dst       Destination array.
+     * @param offset    Offset to start writing at.
+     * @param value     Value to write.
+     * @param scale     Number of fraction digits.
+     *
+     * @return Offset following the last byte written.
+     */
+    public static int write(byte[] dst, int offset, double value, int scale) {
+        long digits = Math.abs(Math.round(value * POW10[scale]));
+        int end = offset + length(value, scale);
+        int i = end;
+
+        if (scale > 0) {
+            long pow = LONG_POW10[scale];
+            int start = digits(dst, i, digits % pow);
+            i -= scale;
+            while (start > i) {
+                dst[--start] = '0';
+            }
+            dst[--i] = '.';
+            digits /= pow;
+        }
+
+        i = digits(dst, i, digits);
+        if (i > offset) dst[--i] = '-';
+
+        return end;
+    }
+
+    /**
+     * Encode a double as decimal bytes.
+     *
+     * @param value Value to encode.
+     *
+     * @return Encoded bytes.
+     */
+    public static byte[] encode(double value) {
+        int scale = scale(value);
+        if (scale < 0) return Double.toString(value).getBytes(ASCII);
+        byte[] dst = new byte[length(value, scale)];
+        write(dst, 0, value, scale);
+        return dst;
+    }
+
+    /**
+     * Decode a long from the remaining decimal bytes of a buffer.
+     *
+     * @param bytes Bytes to decode.
+     *
+     * @return Decoded value.
+     *
+     * @throws NumberFormatException if the bytes are not a valid long.
+     */
+    public static long decodeLong(ByteBuffer bytes) {
+        int start = bytes.position();
+        int end   = bytes.limit();
+
+        if (start == end) throw new NumberFormatException("Empty value");
+
+        boolean negative = bytes.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) throw new NumberFormatException("Invalid long");
+
+        long value = 0;
+        while (i < end) {
+            int digit = bytes.get(i++) - '0';
+            if (digit < 0 || digit > 9 || value < Long.MIN_VALUE / 10) {
+                throw new NumberFormatException("Invalid long");
+            }
+            value *= 10;
+            if (value < Long.MIN_VALUE + digit) throw new NumberFormatException("Invalid long");
+            value -= digit;
+        }
+
+        if (!negative) {
+            if (value == Long.MIN_VALUE) throw new NumberFormatException("Invalid long");
+            value = -value;
+        }
+
+        bytes.position(end);
+        return value;
+    }
+
+    /**
+     * Decode a double from the remaining decimal bytes of a buffer. Decimals with
+     * at most 15 significant digits and a small exponent are decoded directly,
+     * others are parsed by {@link Double#parseDouble}. Redis representations of
+     * infinity are supported.
+     *
+     * @param bytes Bytes to decode.
+     *
+     * @return Decoded value.
+     *
+     * @throws NumberFormatException if the bytes are not a valid double.
+     */
+    public static double decodeDouble(ByteBuffer bytes) {
+        int start = bytes.position();
+        int end   = bytes.limit();
+
+        if (start == end) throw new NumberFormatException("Empty value");
+
+        int i = start;
+        byte first = bytes.get(i);
+        boolean negative = first == '-';
+        if (negative || first == '+') i++;
+
+        long digits = 0;
+        int count = 0, scale = 0, exponent = 0;
+        boolean any = false, dot = false;
+
+        for (; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (dot) scale++;
+                if (digits == 0 && b == '0') continue;
+                if (++count > 15) return parse(bytes);
+                digits = digits * 10 + (b - '0');
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else if ((b == 'e' || b == 'E') && any) {
+                if ((exponent = exponent(bytes, i + 1, end)) == Integer.MIN_VALUE) return parse(bytes);
+                break;
+            } else {
+                return parse(bytes);
+            }
+        }
+
+        if (!any) return parse(bytes);
+
+        exponent -= scale;
+        if (exponent < -22 || exponent > 22) return parse(bytes);
+
+        double value = digits;
+        value = (exponent < 0) ? value / POW10[-exponent] : value * POW10[exponent];
+
+        bytes.position(end);
+        return negative ? -value : value;
+    }
+
+    private static int digits(byte[] dst, int end, long value) {
+        int i = end;
+
+        while (value >= 100) {
+            long q = value / 100;
+            int r = (int) (value - q * 100);
+            value = q;
+            dst[--i] = ONES[r];
+            dst[--i] = TENS[r];
+        }
+
+        int r = (int) value;
+        dst[--i] = ONES[r];
+        if (r >= 10) dst[--i] = TENS[r];
+
+        return i;
+    }
+
+    private static int exponent(ByteBuffer bytes, int i, int end) {
+        if (i == end) return Integer.MIN_VALUE;
+
+        byte sign = bytes.get(i);
+        boolean negative = sign == '-';
+        if (negative || sign == '+') i++;
+        if (i == end || end - i > 3) return Integer.MIN_VALUE;
+
+        int exponent = 0;
+        while (i < end) {
+            int digit = bytes.get(i++) - '0';
+            if (digit < 0 || digit > 9) return Integer.MIN_VALUE;
+            exponent = exponent * 10 + digit;
+        }
+
+        return negative ? -exponent : exponent;
+    }
+
+    private static double parse(ByteBuffer bytes) {
+        char[] chars = new char[bytes.remaining()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) bytes.get();
+        }
+
+        String s = new String(chars);
+        if ("inf".equals(s) || "+inf".equals(s)) return Double.POSITIVE_INFINITY;
+        if ("-inf".equals(s)) return Double.NEGATIVE_INFINITY;
+
+        return Double.parseDouble(s);
+    }
+}
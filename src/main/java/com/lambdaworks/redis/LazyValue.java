@@ -0,0 +1,69 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.RedisCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A value that holds the raw bytes of a reply and decodes them with the
+ * connection's codec the first time it is accessed, on the accessing thread.
+ * The codec's decode methods must be safe to call from any thread.
+ *
+ * @param <V> Value type.
+ *
+ * @author Will Glozer
+ */
+public class LazyValue<V> {
+    private RedisCodec<?, V> codec;
+    private byte[] bytes;
+    private V value;
+
+    public LazyValue(RedisCodec<?, V> codec, byte[] bytes) {
+        this.codec = codec;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Get the value, decoding it if this is the first access.
+     *
+     * @return The decoded value.
+     */
+    public synchronized V get() {
+        if (bytes != null) {
+            value = codec.decodeValue(ByteBuffer.wrap(bytes));
+            bytes = null;
+            codec = null;
+        }
+        return value;
+    }
+
+    /**
+     * Check if the value has been decoded.
+     *
+     * @return true if the value has been decoded.
+     */
+    public synchronized boolean isDecoded() {
+        return bytes == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        LazyValue<?> that = (LazyValue<?>) o;
+        V value = get();
+        return value != null ? value.equals(that.get()) : that.get() == null;
+    }
+
+    @Override
+    public int hashCode() {
+        V value = get();
+        return value != null ? value.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
@@ -2,6 +2,7 @@
 
 package com.lambdaworks.redis;
 
+import com.lambdaworks.codec.Base10;
 import com.lambdaworks.codec.Base16;
 import com.lambdaworks.redis.codec.RedisCodec;
 import com.lambdaworks.redis.output.*;
@@ -37,6 +38,7 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     private String password;
     private int db;
     private boolean closed;
+    private Map<String, Script<V>> scripts;
 
     /**
      * Initialize a new connection.
@@ -51,6 +53,7 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         this.codec = codec;
         this.timeout = timeout;
         this.unit = unit;
+        this.scripts = new LinkedHashMap<String, Script<V>>();
     }
 
     /**
@@ -68,6 +71,10 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(APPEND, new IntegerOutput<K, V>(codec), key, value);
     }
 
+    public Future<String> asking() {
+        return dispatch(ASKING, new StatusOutput<K, V>(codec));
+    }
+
     public String auth(String password) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(password);
         Command<K, V, String> cmd = dispatch(AUTH, new StatusOutput<K, V>(codec), args);
@@ -155,6 +162,49 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(CLIENT, new StatusOutput<K, V>(codec), args);
     }
 
+    public Future<String> clusterAddSlots(int... slots) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(ADDSLOTS);
+        for (int slot : slots) {
+            args.add(slot);
+        }
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<String> clusterInfo() {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(INFO);
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<String> clusterMeet(String ip, int port) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(MEET).add(ip).add(port);
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<String> clusterMyId() {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(MYID);
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<String> clusterSetSlotImporting(int slot, String nodeId) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(SETSLOT).add(slot).add(IMPORTING).add(nodeId);
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<String> clusterSetSlotMigrating(int slot, String nodeId) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(SETSLOT).add(slot).add(MIGRATING).add(nodeId);
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<String> clusterSetSlotNode(int slot, String nodeId) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(SETSLOT).add(slot).add(NODE).add(nodeId);
+        return dispatch(CLUSTER, new StatusOutput<K, V>(codec), args);
+    }
+
+    public Future<List<Object>> clusterSlots() {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(SLOTS);
+        return dispatch(CLUSTER, new NestedMultiOutput<K, V>(codec), args);
+    }
+
     public Future<List<String>> configGet(String parameter) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(GET).add(parameter);
         return dispatch(CONFIG, new StringListOutput<K, V>(codec), args);
@@ -218,6 +268,16 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(EVAL, output, args);
     }
 
+    public <T> Future<T> evalsha(Script<V> script, ScriptOutputType type, K[] keys, V... values) {
+        CommandOutput<K, V, T> output = newScriptOutput(codec, type);
+        if (multi != null) {
+            CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+            args.addValue(script.getSource()).add(keys.length).addKeys(keys).addValues(values);
+            return dispatch(EVAL, output, args);
+        }
+        return dispatch(new ScriptCommand<K, V, T>(this, script, output, keys, values));
+    }
+
     public <T> Future<T> evalsha(String digest, ScriptOutputType type, K[] keys, V... values) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
         args.add(digest).add(keys.length).addKeys(keys).addValues(values);
@@ -318,11 +378,35 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(HMGET, new ValueListOutput<K, V>(codec), args);
     }
 
+    public Future<List<LazyValue<V>>> hmgetLazy(K key, K... fields) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).addKeys(fields);
+        return dispatch(HMGET, new LazyValueListOutput<K, V>(codec), args);
+    }
+
     public Future<String> hmset(K key, Map<K, V> map) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(map);
         return dispatch(HMSET, new StatusOutput<K, V>(codec), args);
     }
 
+    public Future<ScanCursor<KeyValue<K, V>>> hscan(K key, String cursor) {
+        return hscan(key, cursor, new ScanArgs());
+    }
+
+    public Future<ScanCursor<KeyValue<K, V>>> hscan(K key, String cursor, ScanArgs scanArgs) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(cursor);
+        scanArgs.build(args);
+        return dispatch(HSCAN, new KeyValueScanOutput<K, V>(codec), args);
+    }
+
+    public Iterator<KeyValue<K, V>> hscanIterator(final K key, final ScanArgs scanArgs) {
+        return new ScanIterator<K, V, KeyValue<K, V>>(this) {
+            @Override
+            protected Future<ScanCursor<KeyValue<K, V>>> scan(String cursor) {
+                return hscan(key, cursor, scanArgs);
+            }
+        };
+    }
+
     public Future<Boolean> hset(K key, K field, V value) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).addKey(field).addValue(value);
         return dispatch(HSET, new BooleanOutput<K, V>(codec), args);
@@ -426,6 +510,11 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(MGET, new ValueListOutput<K, V>(codec), args);
     }
 
+    public Future<List<LazyValue<V>>> mgetLazy(K... keys) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKeys(keys);
+        return dispatch(MGET, new LazyValueListOutput<K, V>(codec), args);
+    }
+
     public Future<Boolean> move(K key, int db) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(db);
         return dispatch(MOVE, new BooleanOutput<K, V>(codec), args);
@@ -484,6 +573,11 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(PING, new StatusOutput<K, V>(codec));
     }
 
+    public Future<String> psetex(K key, long milliseconds, V value) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(milliseconds).addValue(value);
+        return dispatch(PSETEX, new StatusOutput<K, V>(codec), args);
+    }
+
     public Future<Long> pttl(K key) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key);
         return dispatch(PTTL, new IntegerOutput<K, V>(codec), args);
@@ -546,6 +640,25 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(SCARD, new IntegerOutput<K, V>(codec), key);
     }
 
+    public Future<ScanCursor<K>> scan(String cursor) {
+        return scan(cursor, new ScanArgs());
+    }
+
+    public Future<ScanCursor<K>> scan(String cursor, ScanArgs scanArgs) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(cursor);
+        scanArgs.build(args);
+        return dispatch(SCAN, new KeyScanOutput<K, V>(codec), args);
+    }
+
+    public Iterator<K> scanIterator(final ScanArgs scanArgs) {
+        return new ScanIterator<K, V, K>(this) {
+            @Override
+            protected Future<ScanCursor<K>> scan(String cursor) {
+                return RedisAsyncConnection.this.scan(cursor, scanArgs);
+            }
+        };
+    }
+
     public Future<List<Boolean>> scriptExists(String... digests) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(EXISTS);
         for (String sha : digests) args.add(sha);
@@ -562,6 +675,17 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(SCRIPT, new StatusOutput<K, V>(codec), args);
     }
 
+    public synchronized Script<V> script(V source) {
+        String digest = digest(source);
+        Script<V> script = scripts.get(digest);
+        if (script == null) {
+            script = new Script<V>(source, digest);
+            scripts.put(digest, script);
+            scriptLoad(source);
+        }
+        return script;
+    }
+
     public Future<String> scriptLoad(V script) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(LOAD).addValue(script);
         return dispatch(SCRIPT, new StatusOutput<K, V>(codec), args);
@@ -585,6 +709,16 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return status;
     }
 
+    public Future<List<String>> sentinelGetMasterAddrByName(String masterName) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add("get-master-addr-by-name").add(masterName);
+        return dispatch(SENTINEL, new StringListOutput<K, V>(codec), args);
+    }
+
+    public Future<String> sentinelFailover(String masterName) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add("failover").add(masterName);
+        return dispatch(SENTINEL, new StatusOutput<K, V>(codec), args);
+    }
+
     public Future<String> set(K key, V value) {
         return dispatch(SET, new StatusOutput<K, V>(codec), key, value);
     }
@@ -704,6 +838,25 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(SREM, new IntegerOutput<K, V>(codec), key, members);
     }
 
+    public Future<ScanCursor<V>> sscan(K key, String cursor) {
+        return sscan(key, cursor, new ScanArgs());
+    }
+
+    public Future<ScanCursor<V>> sscan(K key, String cursor, ScanArgs scanArgs) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(cursor);
+        scanArgs.build(args);
+        return dispatch(SSCAN, new ValueScanOutput<K, V>(codec), args);
+    }
+
+    public Iterator<V> sscanIterator(final K key, final ScanArgs scanArgs) {
+        return new ScanIterator<K, V, V>(this) {
+            @Override
+            protected Future<ScanCursor<V>> scan(String cursor) {
+                return sscan(key, cursor, scanArgs);
+            }
+        };
+    }
+
     public Future<Set<V>> sunion(K... keys) {
         CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKeys(keys);
         return dispatch(SUNION, new ValueSetOutput<K, V>(codec), args);
@@ -759,7 +912,8 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<Long> zcount(K key, double min, double max) {
-        return zcount(key, string(min), string(max));
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(min).add(max);
+        return dispatch(ZCOUNT, new IntegerOutput<K, V>(codec), args);
     }
 
     public Future<Long> zcount(K key, String min, String max) {
@@ -794,7 +948,8 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<V>> zrangebyscore(K key, double min, double max) {
-        return zrangebyscore(key, string(min), string(max));
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(min).add(max);
+        return dispatch(ZRANGEBYSCORE, new ValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<V>> zrangebyscore(K key, String min, String max) {
@@ -803,7 +958,9 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<V>> zrangebyscore(K key, double min, double max, long offset, long count) {
-        return zrangebyscore(key, string(min), string(max), offset, count);
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+        args.addKey(key).add(min).add(max).add(LIMIT).add(offset).add(count);
+        return dispatch(ZRANGEBYSCORE, new ValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<V>> zrangebyscore(K key, String min, String max, long offset, long count) {
@@ -813,7 +970,9 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<ScoredValue<V>>> zrangebyscoreWithScores(K key, double min, double max) {
-        return zrangebyscoreWithScores(key, string(min), string(max));
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+        args.addKey(key).add(min).add(max).add(WITHSCORES);
+        return dispatch(ZRANGEBYSCORE, new ScoredValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<ScoredValue<V>>> zrangebyscoreWithScores(K key, String min, String max) {
@@ -823,7 +982,9 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<ScoredValue<V>>> zrangebyscoreWithScores(K key, double min, double max, long offset, long count) {
-        return zrangebyscoreWithScores(key, string(min), string(max), offset, count);
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+        args.addKey(key).add(min).add(max).add(WITHSCORES).add(LIMIT).add(offset).add(count);
+        return dispatch(ZRANGEBYSCORE, new ScoredValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<ScoredValue<V>>> zrangebyscoreWithScores(K key, String min, String max, long offset, long count) {
@@ -846,7 +1007,8 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<Long> zremrangebyscore(K key, double min, double max) {
-        return zremrangebyscore(key, string(min), string(max));
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(min).add(max);
+        return dispatch(ZREMRANGEBYSCORE, new IntegerOutput<K, V>(codec), args);
     }
 
     public Future<Long> zremrangebyscore(K key, String min, String max) {
@@ -866,7 +1028,8 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<V>> zrevrangebyscore(K key, double max, double min) {
-        return zrevrangebyscore(key, string(max), string(min));
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(max).add(min);
+        return dispatch(ZREVRANGEBYSCORE, new ValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<V>> zrevrangebyscore(K key, String max, String min) {
@@ -875,7 +1038,9 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<V>> zrevrangebyscore(K key, double max, double min, long offset, long count) {
-        return zrevrangebyscore(key, string(max), string(min), offset, count);
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+        args.addKey(key).add(max).add(min).add(LIMIT).add(offset).add(count);
+        return dispatch(ZREVRANGEBYSCORE, new ValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<V>> zrevrangebyscore(K key, String max, String min, long offset, long count) {
@@ -885,7 +1050,9 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<ScoredValue<V>>> zrevrangebyscoreWithScores(K key, double max, double min) {
-        return zrevrangebyscoreWithScores(key, string(max), string(min));
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+        args.addKey(key).add(max).add(min).add(WITHSCORES);
+        return dispatch(ZREVRANGEBYSCORE, new ScoredValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<ScoredValue<V>>> zrevrangebyscoreWithScores(K key, String max, String min) {
@@ -895,7 +1062,9 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public Future<List<ScoredValue<V>>> zrevrangebyscoreWithScores(K key, double max, double min, long offset, long count) {
-        return zrevrangebyscoreWithScores(key, string(max), string(min), offset, count);
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec);
+        args.addKey(key).add(max).add(min).add(WITHSCORES).add(LIMIT).add(offset).add(count);
+        return dispatch(ZREVRANGEBYSCORE, new ScoredValueListOutput<K, V>(codec), args);
     }
 
     public Future<List<ScoredValue<V>>> zrevrangebyscoreWithScores(K key, String max, String min, long offset, long count) {
@@ -908,6 +1077,25 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return dispatch(ZREVRANK, new IntegerOutput<K, V>(codec), key, member);
     }
 
+    public Future<ScanCursor<ScoredValue<V>>> zscan(K key, String cursor) {
+        return zscan(key, cursor, new ScanArgs());
+    }
+
+    public Future<ScanCursor<ScoredValue<V>>> zscan(K key, String cursor, ScanArgs scanArgs) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(cursor);
+        scanArgs.build(args);
+        return dispatch(ZSCAN, new ScoredValueScanOutput<K, V>(codec), args);
+    }
+
+    public Iterator<ScoredValue<V>> zscanIterator(final K key, final ScanArgs scanArgs) {
+        return new ScanIterator<K, V, ScoredValue<V>>(this) {
+            @Override
+            protected Future<ScanCursor<ScoredValue<V>>> scan(String cursor) {
+                return zscan(key, cursor, scanArgs);
+            }
+        };
+    }
+
     public Future<Double> zscore(K key, V member) {
         return dispatch(ZSCORE, new DoubleOutput<K, V>(codec), key, member);
     }
@@ -1006,6 +1194,11 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
             tmp.add(new Command<K, V, String>(SELECT, new StatusOutput<K, V>(codec), args, false));
         }
 
+        for (Script<V> script : scripts.values()) {
+            CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(LOAD).addValue(script.getSource());
+            tmp.add(new Command<K, V, String>(SCRIPT, new StatusOutput<K, V>(codec), args, false));
+        }
+
         tmp.addAll(queue);
         queue.clear();
 
@@ -1021,9 +1214,14 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
 
     @Override
     public synchronized void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        if (!closed && channel != null) {
+            ConnectionWatchdog watchdog = ctx.getPipeline().get(ConnectionWatchdog.class);
+            closed = watchdog != null && !watchdog.isReconnect();
+        }
+
         if (closed) {
             for (Command<K, V, ?> cmd : queue) {
-                cmd.getOutput().setError("Connection closed");
+                if (cmd.getOutput() != null) cmd.getOutput().setError("Connection closed");
                 cmd.complete();
             }
             queue.clear();
@@ -1052,13 +1250,16 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
     }
 
     public synchronized <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
-        Command<K, V, T> cmd = new Command<K, V, T>(type, output, args, multi != null);
+        return dispatch(new Command<K, V, T>(type, output, args, multi != null));
+    }
 
+    public synchronized <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
         try {
             if (multi != null) {
                 multi.add(cmd);
             }
 
+            bind(cmd);
             queue.put(cmd);
 
             if (channel != null) {
@@ -1073,6 +1274,52 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         return cmd;
     }
 
+    /**
+     * Send a command issued on the I/O thread in reply to another command,
+     * without MULTI tracking and without blocking.
+     *
+     * @param cmd   Command to send.
+     *
+     * @return false if the connection is closed or in a MULTI.
+     */
+    synchronized boolean fallback(Command<K, V, ?> cmd) {
+        if (closed || multi != null || queue == null || !queue.offer(cmd)) return false;
+        if (channel != null) channel.write(cmd);
+        return true;
+    }
+
+    private void bind(Command<K, V, ?> cmd) {
+        if (cmd instanceof ScriptCommand) {
+            ((ScriptCommand<K, V, ?>) cmd).bind(this);
+        }
+    }
+
+    /**
+     * Dispatch a batch of commands, writing them to the server in a single
+     * pipelined flush.
+     *
+     * @param cmds  Commands to dispatch.
+     */
+    public synchronized void dispatch(Collection<? extends Command<K, V, ?>> cmds) {
+        try {
+            for (Command<K, V, ?> cmd : cmds) {
+                if (multi != null) {
+                    multi.add(cmd);
+                }
+                bind(cmd);
+                queue.put(cmd);
+            }
+
+            if (channel != null) {
+                channel.write(new ArrayList<Command<K, V, ?>>(cmds));
+            }
+        } catch (NullPointerException e) {
+            throw new RedisException("Connection is closed");
+        } catch (InterruptedException e) {
+            throw new RedisCommandInterruptedException(e);
+        }
+    }
+
     public <T> T await(Command<K, V, T> cmd, long timeout, TimeUnit unit) {
         if (!cmd.await(timeout, unit)) {
             cmd.cancel(true);
@@ -1099,6 +1346,6 @@ public class RedisAsyncConnection<K, V> extends SimpleChannelUpstreamHandler {
         if (Double.isInfinite(n)) {
             return (n > 0) ? "+inf" : "-inf";
         }
-        return Double.toString(n);
+        return new String(Base10.encode(n), Charsets.ASCII);
     }
 }
@@ -15,7 +15,6 @@ import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.util.HashedWheelTimer;
 import org.jboss.netty.util.Timer;
 
-import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.concurrent.*;
 
@@ -28,10 +27,14 @@ import java.util.concurrent.*;
  */
 public class RedisClient {
     private ClientBootstrap bootstrap;
+    private Endpoints endpoints;
     private Timer timer;
     private ChannelGroup channels;
     private long timeout;
     private TimeUnit unit;
+    private Executor decoder;
+    private ReconnectStrategy strategy;
+    private ReconnectMetrics metrics;
 
     /**
      * Create a new client that connects to the supplied host on the default port.
@@ -51,19 +54,33 @@ public class RedisClient {
      * @param port    Server port.
      */
     public RedisClient(String host, int port) {
+        this(new Endpoints(host, port));
+    }
+
+    /**
+     * Create a new client that connects to the first available of the supplied
+     * endpoints. Lost connections are re-established to the same endpoint, or
+     * to the following endpoints in turn when that fails, and hostnames are
+     * resolved again on each attempt.
+     *
+     * @param endpoints Endpoints to connect to.
+     */
+    public RedisClient(Endpoints endpoints) {
         ExecutorService connectors = Executors.newFixedThreadPool(1);
         ExecutorService workers    = Executors.newCachedThreadPool();
         ClientSocketChannelFactory factory = new NioClientSocketChannelFactory(connectors, workers);
 
-        InetSocketAddress addr = new InetSocketAddress(host, port);
+        this.endpoints = endpoints;
 
         bootstrap = new ClientBootstrap(factory);
-        bootstrap.setOption("remoteAddress", addr);
+        bootstrap.setOption("remoteAddress", endpoints.resolve(0));
 
         setDefaultTimeout(60, TimeUnit.SECONDS);
 
         channels = new DefaultChannelGroup();
         timer    = new HashedWheelTimer();
+        strategy = ConnectionWatchdog.DEFAULT_STRATEGY;
+        metrics  = new ReconnectMetrics();
     }
 
     /**
@@ -80,6 +97,64 @@ public class RedisClient {
         bootstrap.setOption("connectTimeoutMillis", unit.toMillis(timeout));
     }
 
+    /**
+     * Set the executor used to decode replies for {@link RedisConnection connections}
+     * subsequently created by this client. When set, the netty I/O thread only frames
+     * replies and the executor runs the codec's decode methods and completes commands,
+     * preserving the order of completion on each connection. Pub/sub connections
+     * always decode on the I/O thread.
+     *
+     * @param decoder   Executor that decodes replies, or null to decode on the I/O thread.
+     */
+    public void setDecodeExecutor(Executor decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Set the strategy deciding the delay before each attempt to re-establish a
+     * lost connection, for connections subsequently created by this client. The
+     * default is exponential backoff with full jitter from 4 to 512 milliseconds.
+     *
+     * @param strategy  Reconnect strategy.
+     */
+    public void setReconnectStrategy(ReconnectStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Get the reconnection metrics of all connections created by this client.
+     *
+     * @return Reconnection metrics.
+     */
+    public ReconnectMetrics getReconnectMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Change the address of the redis server and immediately reconnect all open
+     * connections to the new server. Commands awaiting a response are resent to
+     * the new server once reconnected.
+     *
+     * @param host    Server hostname.
+     * @param port    Server port.
+     */
+    public void setRemoteAddress(String host, int port) {
+        endpoints.set(host, port);
+        bootstrap.setOption("remoteAddress", endpoints.resolve(0));
+        for (Channel c : channels) {
+            c.close();
+        }
+    }
+
+    /**
+     * Get the address of the redis server.
+     *
+     * @return The server address.
+     */
+    public SocketAddress getRemoteAddress() {
+        return (SocketAddress) bootstrap.getOption("remoteAddress");
+    }
+
     /**
      * Open a new synchronous connection to the redis server that treats
      * keys and values as UTF-8 strings.
@@ -133,7 +208,9 @@ public class RedisClient {
     public <K, V> RedisAsyncConnection<K, V> connectAsync(RedisCodec<K, V> codec) {
         BlockingQueue<Command<K, V, ?>> queue = new LinkedBlockingQueue<Command<K, V, ?>>();
 
-        CommandHandler<K, V> handler = new CommandHandler<K, V>(queue);
+        CommandHandler<K, V> handler = (decoder != null)
+                ? new ExecutorCommandHandler<K, V>(queue, decoder)
+                : new CommandHandler<K, V>(queue);
         RedisAsyncConnection<K, V> connection = new RedisAsyncConnection<K, V>(queue, codec, timeout, unit);
 
         return connect(handler, connection);
@@ -157,24 +234,30 @@ public class RedisClient {
     }
 
     private <K, V, T extends RedisAsyncConnection<K, V>> T connect(CommandHandler<K, V> handler, T connection) {
-        try {
-            ConnectionWatchdog watchdog = new ConnectionWatchdog(bootstrap, channels, timer);
-            ChannelPipeline pipeline = Channels.pipeline(watchdog, handler, connection);
-            Channel channel = bootstrap.getFactory().newChannel(pipeline);
+        Throwable cause = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            try {
+                ConnectionWatchdog watchdog = new ConnectionWatchdog(bootstrap, endpoints, i, channels, timer);
+                watchdog.setStrategy(strategy);
+                watchdog.setMetrics(metrics);
+                ChannelPipeline pipeline = Channels.pipeline(watchdog, handler, connection);
+                Channel channel = bootstrap.getFactory().newChannel(pipeline);
 
-            ChannelFuture future = channel.connect((SocketAddress) bootstrap.getOption("remoteAddress"));
-            future.await();
+                ChannelFuture future = channel.connect(endpoints.resolve(i));
+                future.await();
 
-            if (!future.isSuccess()) {
-                throw future.getCause();
-            }
+                if (!future.isSuccess()) {
+                    throw future.getCause();
+                }
 
-            watchdog.setReconnect(true);
+                watchdog.setReconnect(true);
 
-            return connection;
-        } catch (Throwable e) {
-            throw new RedisException("Unable to connect", e);
+                return connection;
+            } catch (Throwable e) {
+                cause = e;
+            }
         }
+        throw new RedisException("Unable to connect", cause);
     }
 
     /**
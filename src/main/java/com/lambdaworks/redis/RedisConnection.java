@@ -56,6 +56,10 @@ public class RedisConnection<K, V> {
         return await(c.append(key, value));
     }
 
+    public String asking() {
+        return await(c.asking());
+    }
+
     public String auth(String password) {
         return c.auth(password);
     }
@@ -122,6 +126,38 @@ public class RedisConnection<K, V> {
         return await(c.clientList());
     }
 
+    public String clusterAddSlots(int... slots) {
+        return await(c.clusterAddSlots(slots));
+    }
+
+    public String clusterInfo() {
+        return await(c.clusterInfo());
+    }
+
+    public String clusterMeet(String ip, int port) {
+        return await(c.clusterMeet(ip, port));
+    }
+
+    public String clusterMyId() {
+        return await(c.clusterMyId());
+    }
+
+    public String clusterSetSlotImporting(int slot, String nodeId) {
+        return await(c.clusterSetSlotImporting(slot, nodeId));
+    }
+
+    public String clusterSetSlotMigrating(int slot, String nodeId) {
+        return await(c.clusterSetSlotMigrating(slot, nodeId));
+    }
+
+    public String clusterSetSlotNode(int slot, String nodeId) {
+        return await(c.clusterSetSlotNode(slot, nodeId));
+    }
+
+    public List<Object> clusterSlots() {
+        return await(c.clusterSlots());
+    }
+
     public List<String> configGet(String parameter) {
         return await(c.configGet(parameter));
     }
@@ -210,6 +246,28 @@ public class RedisConnection<K, V> {
         return (T) await(c.evalsha(digest, type, keys, values));
     }
 
+    /**
+     * Eval a script registered with {@link #script}, sending only its digest
+     * unless the server does not have the script cached.
+     *
+     * @param script    Script to evaluate.
+     * @param type      Script output type.
+     * @param keys      Redis keys to pass to script.
+     *
+     * @param <T>       Expected return type.
+     *
+     * @return The result of evaluating the script.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T evalsha(Script<V> script, ScriptOutputType type, K... keys) {
+        return (T) await(c.evalsha(script, type, keys, (V[]) new Object[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T evalsha(Script<V> script, ScriptOutputType type, K[] keys, V... values) {
+        return (T) await(c.evalsha(script, type, keys, values));
+    }
+
     public Boolean exists(K key) {
         return await(c.exists(key));
     }
@@ -290,10 +348,26 @@ public class RedisConnection<K, V> {
         return await(c.hmget(key, fields));
     }
 
+    public List<LazyValue<V>> hmgetLazy(K key, K... fields) {
+        return await(c.hmgetLazy(key, fields));
+    }
+
     public String hmset(K key, Map<K, V> map) {
         return await(c.hmset(key, map));
     }
 
+    public ScanCursor<KeyValue<K, V>> hscan(K key, String cursor) {
+        return await(c.hscan(key, cursor));
+    }
+
+    public ScanCursor<KeyValue<K, V>> hscan(K key, String cursor, ScanArgs scanArgs) {
+        return await(c.hscan(key, cursor, scanArgs));
+    }
+
+    public Iterator<KeyValue<K, V>> hscanIterator(K key, ScanArgs scanArgs) {
+        return c.hscanIterator(key, scanArgs);
+    }
+
     public Boolean hset(K key, K field, V value) {
         return await(c.hset(key, field, value));
     }
@@ -382,6 +456,10 @@ public class RedisConnection<K, V> {
         return await(c.mget(keys));
     }
 
+    public List<LazyValue<V>> mgetLazy(K... keys) {
+        return await(c.mgetLazy(keys));
+    }
+
     public Boolean move(K key, int db) {
         return await(c.move(key, db));
     }
@@ -431,6 +509,10 @@ public class RedisConnection<K, V> {
         return await(c.ping());
     }
 
+    public String psetex(K key, long milliseconds, V value) {
+        return await(c.psetex(key, milliseconds, value));
+    }
+
     public Long pttl(K key) {
         return await(c.pttl(key));
     }
@@ -487,6 +569,18 @@ public class RedisConnection<K, V> {
         return await(c.scard(key));
     }
 
+    public ScanCursor<K> scan(String cursor) {
+        return await(c.scan(cursor));
+    }
+
+    public ScanCursor<K> scan(String cursor, ScanArgs scanArgs) {
+        return await(c.scan(cursor, scanArgs));
+    }
+
+    public Iterator<K> scanIterator(ScanArgs scanArgs) {
+        return c.scanIterator(scanArgs);
+    }
+
     public List<Boolean> scriptExists(String... digests) {
         return await(c.scriptExists(digests));
     }
@@ -499,6 +593,18 @@ public class RedisConnection<K, V> {
         return await(c.scriptKill());
     }
 
+    /**
+     * Register a script with this connection. The script is loaded now and
+     * again whenever the connection is re-established.
+     *
+     * @param source    Lua script.
+     *
+     * @return The script handle.
+     */
+    public Script<V> script(V source) {
+        return c.script(source);
+    }
+
     public String scriptLoad(V script) {
         return await(c.scriptLoad(script));
     }
@@ -515,6 +621,14 @@ public class RedisConnection<K, V> {
         return c.select(db);
     }
 
+    public List<String> sentinelGetMasterAddrByName(String masterName) {
+        return await(c.sentinelGetMasterAddrByName(masterName));
+    }
+
+    public String sentinelFailover(String masterName) {
+        return await(c.sentinelFailover(masterName));
+    }
+
     public String set(K key, V value) {
         return await(c.set(key, value));
     }
@@ -616,6 +730,18 @@ public class RedisConnection<K, V> {
         return await(c.srem(key, members));
     }
 
+    public ScanCursor<V> sscan(K key, String cursor) {
+        return await(c.sscan(key, cursor));
+    }
+
+    public ScanCursor<V> sscan(K key, String cursor, ScanArgs scanArgs) {
+        return await(c.sscan(key, cursor, scanArgs));
+    }
+
+    public Iterator<V> sscanIterator(K key, ScanArgs scanArgs) {
+        return c.sscanIterator(key, scanArgs);
+    }
+
     public Set<V> sunion(K... keys) {
         return await(c.sunion(keys));
     }
@@ -784,6 +910,18 @@ public class RedisConnection<K, V> {
         return await(c.zrevrank(key, member));
     }
 
+    public ScanCursor<ScoredValue<V>> zscan(K key, String cursor) {
+        return await(c.zscan(key, cursor));
+    }
+
+    public ScanCursor<ScoredValue<V>> zscan(K key, String cursor, ScanArgs scanArgs) {
+        return await(c.zscan(key, cursor, scanArgs));
+    }
+
+    public Iterator<ScoredValue<V>> zscanIterator(K key, ScanArgs scanArgs) {
+        return c.zscanIterator(key, scanArgs);
+    }
+
     public Double zscore(K key, V member) {
         return await(c.zscore(key, member));
     }
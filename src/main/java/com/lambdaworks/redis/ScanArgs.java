@@ -0,0 +1,62 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.protocol.CommandArgs;
+
+import static com.lambdaworks.redis.protocol.CommandKeyword.*;
+
+/**
+ * Argument list builder for the redis <a href="http://redis.io/commands/scan">SCAN</a>,
+ * SSCAN, HSCAN and ZSCAN commands. Static import the methods from {@link Builder}
+ * and chain the method calls: <code>match("user:*").count(1000)</code>.
+ *
+ * @author Will Glozer
+ */
+public class ScanArgs {
+    private String match;
+    private Long count;
+
+    /**
+     * Static builder methods.
+     */
+    public static class Builder {
+        public static ScanArgs match(String pattern) {
+            return new ScanArgs().match(pattern);
+        }
+
+        public static ScanArgs count(long count) {
+            return new ScanArgs().count(count);
+        }
+    }
+
+    public ScanArgs match(String pattern) {
+        match = pattern;
+        return this;
+    }
+
+    /**
+     * Hint the amount of work done per call, which redis treats as the
+     * approximate number of elements returned in each page.
+     *
+     * @param count Number of elements.
+     *
+     * @return These args.
+     */
+    public ScanArgs count(long count) {
+        this.count = count;
+        return this;
+    }
+
+    <K, V> void build(CommandArgs<K, V> args) {
+        if (match != null) {
+            args.add(MATCH);
+            args.add(match);
+        }
+
+        if (count != null) {
+            args.add(COUNT);
+            args.add(count);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import java.util.List;
+
+/**
+ * A page of elements returned by SCAN, SSCAN, HSCAN or ZSCAN, and the cursor
+ * to pass to the next call to continue the iteration.
+ *
+ * @param <T> Element type.
+ *
+ * @author Will Glozer
+ */
+public class ScanCursor<T> {
+    /**
+     * Cursor that starts an iteration, and is returned when it is finished.
+     */
+    public static final String INITIAL = "0";
+
+    public final String cursor;
+    public final List<T> items;
+
+    public ScanCursor(String cursor, List<T> items) {
+        this.cursor = cursor;
+        this.items  = items;
+    }
+
+    /**
+     * Check whether the iteration is finished, in which case the cursor
+     * must not be used to request another page.
+     *
+     * @return true if this is the last page.
+     */
+    public boolean isFinished() {
+        return INITIAL.equals(cursor);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%s, %s)", cursor, items);
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.protocol.Command;
+
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy {@link Iterator} over the elements returned by a SCAN family command.
+ * The first page is requested by the first call to {@link #hasNext()}, and
+ * the next page is requested as soon as the current page arrives so it is
+ * fetched while the current page is consumed. At most two pages are held.
+ *
+ * A cursor is only valid on the server that returned it, so the SCAN family
+ * is never sent to a replica and keyless SCAN is rejected by connections that
+ * span several nodes.
+ *
+ * Elements may be returned more than once, and elements added or removed
+ * during the iteration may or may not be returned, as documented for SCAN.
+ *
+ * @param <T> Element type.
+ *
+ * @author Will Glozer
+ */
+public abstract class ScanIterator<K, V, T> implements Iterator<T> {
+    private RedisAsyncConnection<K, V> connection;
+    private Future<ScanCursor<T>> pending;
+    private Iterator<T> page;
+
+    /**
+     * Initialize a new iterator that waits for pages up to the connection's timeout.
+     *
+     * @param connection    Connection pages are requested from.
+     */
+    public ScanIterator(RedisAsyncConnection<K, V> connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Request the page at a cursor.
+     *
+     * @param cursor    Cursor of the page.
+     *
+     * @return A future for the page.
+     */
+    protected abstract Future<ScanCursor<T>> scan(String cursor);
+
+    /**
+     * @throws RedisException if a page is not received in time or the command fails.
+     */
+    @Override
+    public boolean hasNext() {
+        if (page == null) {
+            pending = scan(ScanCursor.INITIAL);
+            page    = Collections.<T>emptyList().iterator();
+        }
+
+        while (!page.hasNext()) {
+            if (pending == null) return false;
+            ScanCursor<T> cursor = await(pending);
+            pending = cursor.isFinished() ? null : scan(cursor.cursor);
+            page    = cursor.items.iterator();
+        }
+
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return page.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScanCursor<T> await(Future<ScanCursor<T>> future) {
+        Command<K, V, ScanCursor<T>> cmd = (Command<K, V, ScanCursor<T>>) future;
+        return connection.await(cmd, connection.timeout, connection.unit);
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+/**
+ * A Lua script registered with a connection, which computes the script's SHA-1
+ * digest once and sends EVALSHA instead of the script source whenever the
+ * script is evaluated.
+ *
+ * @author Will Glozer
+ */
+public class Script<V> {
+    private final V source;
+    private final String digest;
+
+    Script(V source, String digest) {
+        this.source = source;
+        this.digest = digest;
+    }
+
+    /**
+     * Get the source of this script.
+     *
+     * @return The script source.
+     */
+    public V getSource() {
+        return source;
+    }
+
+    /**
+     * Get the SHA-1 digest of this script.
+     *
+     * @return The digest as a lowercase hex string.
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return digest;
+    }
+}
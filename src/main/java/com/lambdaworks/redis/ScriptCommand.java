@@ -0,0 +1,130 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.protocol.*;
+
+import java.nio.ByteBuffer;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * EVALSHA of a {@link Script} that falls back to EVAL when the server replies
+ * NOSCRIPT, completing once the fallback completes. The fallback is sent on
+ * the connection that wrote the EVALSHA, after any commands already queued
+ * there, and fails with the NOSCRIPT error if that connection is closed or
+ * has since begun a MULTI.
+ *
+ * @author Will Glozer
+ */
+class ScriptCommand<K, V, T> extends Command<K, V, T> {
+    private RedisAsyncConnection<K, V> connection;
+    private Script<V> script;
+    private K[] keys;
+    private V[] values;
+
+    ScriptCommand(RedisAsyncConnection<K, V> connection, Script<V> script, CommandOutput<K, V, T> output,
+                  K[] keys, V[] values) {
+        super(EVALSHA, new NoScriptOutput<K, V, T>(output), null, false);
+        this.connection = connection;
+        this.script     = script;
+        this.keys       = keys;
+        this.values     = values;
+        this.args       = new CommandArgs<K, V>(connection.codec).add(script.getDigest());
+        args.add(keys.length).addKeys(keys).addValues(values);
+    }
+
+    /**
+     * Set the connection that wrote this command and will send the fallback.
+     *
+     * @param connection    Connection the command was queued on.
+     */
+    void bind(RedisAsyncConnection<K, V> connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void complete() {
+        NoScriptOutput<K, V, T> output = (NoScriptOutput<K, V, T>) getOutput();
+        if (output == null || !output.noscript || isDone()) {
+            super.complete();
+            return;
+        }
+
+        output.noscript = false;
+        output.fallback = true;
+
+        CommandArgs<K, V> args = new CommandArgs<K, V>(connection.codec).addValue(script.getSource());
+        args.add(keys.length).addKeys(keys).addValues(values);
+        Command<K, V, T> eval = new Command<K, V, T>(EVAL, output, args, false) {
+            @Override
+            public void complete() {
+                super.complete();
+                ScriptCommand.super.complete();
+            }
+        };
+
+        if (!connection.fallback(eval)) {
+            output.setError("NOSCRIPT No matching script and EVAL fallback could not be sent");
+            super.complete();
+        }
+    }
+
+    /**
+     * Output that hides a NOSCRIPT error from the output it wraps.
+     */
+    static class NoScriptOutput<K, V, T> extends CommandOutput<K, V, T> {
+        private CommandOutput<K, V, T> output;
+        private boolean noscript;
+        private boolean fallback;
+
+        NoScriptOutput(CommandOutput<K, V, T> output) {
+            super(null, null);
+            this.output = output;
+        }
+
+        @Override
+        public T get() {
+            return output.get();
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            output.set(bytes);
+        }
+
+        @Override
+        public void set(long integer) {
+            output.set(integer);
+        }
+
+        @Override
+        public void setError(ByteBuffer error) {
+            setError(decodeAscii(error));
+        }
+
+        @Override
+        public void setError(String error) {
+            if (!fallback && error.startsWith("NOSCRIPT")) {
+                noscript = true;
+            } else {
+                output.setError(error);
+            }
+        }
+
+        @Override
+        public boolean hasError() {
+            return output.hasError();
+        }
+
+        @Override
+        public String getError() {
+            return output.getError();
+        }
+
+        @Override
+        public void complete(int depth) {
+            output.complete(depth);
+        }
+    }
+}
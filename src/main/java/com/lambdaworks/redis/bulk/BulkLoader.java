@@ -0,0 +1,389 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.bulk;
+
+import com.lambdaworks.codec.Base10;
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.protocol.*;
+import org.jboss.netty.buffer.*;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads data into redis by streaming commands over a dedicated socket, like
+ * <code>redis-cli --pipe</code>. Commands are read from a file of encoded
+ * commands mapped into memory, or encoded from lines of text into large
+ * buffers, and written without creating a {@link Command} per command. A
+ * separate thread decodes and counts the replies and the errors among them.
+ *
+ * The end of a load is detected by sending ECHO of a random marker after the
+ * last command and waiting up to the timeout for its reply. When a password
+ * or database is set, AUTH and SELECT are sent and acknowledged before the
+ * first command is written, and the load fails if either is rejected.
+ *
+ * @author Will Glozer
+ */
+public class BulkLoader {
+    private static final byte[] CRLF = "\r\n".getBytes(Charsets.ASCII);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MAP_SIZE = 256 * 1024 * 1024;
+    private static final int MAX_ERRORS = 10;
+
+    private SocketAddress address;
+    private int chunkSize;
+    private long timeout;
+    private TimeUnit unit;
+    private String password;
+    private int db;
+    private AtomicLong bytes;
+    private AtomicLong replies;
+    private AtomicLong errors;
+    private List<String> errorMessages;
+
+    /**
+     * Create a new loader.
+     *
+     * @param address   Address of the redis server.
+     * @param chunkSize Size in bytes of the buffer commands encoded from text are written from.
+     * @param timeout   Maximum time to wait for the remaining replies after the last command is written.
+     * @param unit      Unit of time for the timeout.
+     */
+    public BulkLoader(SocketAddress address, int chunkSize, long timeout, TimeUnit unit) {
+        if (chunkSize < 64) throw new IllegalArgumentException("Chunk size must be at least 64 bytes");
+
+        this.address       = address;
+        this.chunkSize     = chunkSize;
+        this.timeout       = timeout;
+        this.unit          = unit;
+        this.bytes         = new AtomicLong();
+        this.replies       = new AtomicLong();
+        this.errors        = new AtomicLong();
+        this.errorMessages = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    /**
+     * Load a file of commands encoded in the redis protocol.
+     *
+     * @param file  File of encoded commands.
+     *
+     * @return Number of replies received, including errors.
+     *
+     * @throws RedisException if the file cannot be read, the connection
+     *         fails, or the replies are not received in time.
+     */
+    public long load(File file) {
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel channel = in.getChannel();
+                Load load = new Load();
+                try {
+                    long size = channel.size();
+                    for (long position = 0; position < size; position += MAP_SIZE) {
+                        long length = Math.min(MAP_SIZE, size - position);
+                        load.write(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                    }
+                    return load.finish();
+                } finally {
+                    load.close();
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RedisException("Bulk load failed", e);
+        }
+    }
+
+    /**
+     * Load commands from lines of text, each holding one command and its
+     * arguments separated by whitespace. Blank lines are skipped, and
+     * arguments are encoded as UTF-8.
+     *
+     * @param reader    Reader of the lines.
+     *
+     * @return Number of replies received, including errors.
+     *
+     * @throws RedisException if the reader fails, the connection fails, or
+     *         the replies are not received in time.
+     */
+    public long loadLines(Reader reader) {
+        try {
+            BufferedReader lines = new BufferedReader(reader);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(chunkSize);
+            Load load = new Load();
+            try {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    line = line.trim();
+                    if (line.length() == 0) continue;
+                    encode(line.split("\\s+"), chunk, load);
+                }
+                chunk.flip();
+                load.write(chunk);
+                return load.finish();
+            } finally {
+                load.close();
+            }
+        } catch (IOException e) {
+            throw new RedisException("Bulk load failed", e);
+        }
+    }
+
+    /**
+     * Set the password sent with AUTH before the commands of each load.
+     *
+     * @param password  Password, or null to skip AUTH.
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Set the database selected with SELECT before the commands of each load.
+     *
+     * @param db    Database number, SELECT is skipped for 0.
+     */
+    public void setDatabase(int db) {
+        this.db = db;
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getReplies() {
+        return replies.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Get the first error replies received.
+     *
+     * @return Up to 10 error messages.
+     */
+    public List<String> getErrorMessages() {
+        synchronized (errorMessages) {
+            return new ArrayList<String>(errorMessages);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "bytes=" + bytes + " replies=" + replies + " errors=" + errors;
+    }
+
+    private void encode(String[] args, ByteBuffer chunk, Load load) throws IOException {
+        byte[][] encoded = new byte[args.length][];
+        int length = header(args.length);
+        for (int i = 0; i < args.length; i++) {
+            encoded[i] = args[i].getBytes(UTF8);
+            length += header(encoded[i].length) + encoded[i].length + CRLF.length;
+        }
+
+        if (length > chunk.remaining()) {
+            chunk.flip();
+            load.write(chunk);
+            chunk.clear();
+        }
+
+        ByteBuffer buffer = length > chunk.capacity() ? ByteBuffer.allocate(length) : chunk;
+        writeHeader(buffer, '*', encoded.length);
+        for (byte[] arg : encoded) {
+            writeHeader(buffer, '$', arg.length);
+            buffer.put(arg).put(CRLF);
+        }
+
+        if (buffer != chunk) {
+            buffer.flip();
+            load.write(buffer);
+        }
+    }
+
+    private static int header(int count) {
+        return 1 + Base10.length(count) + CRLF.length;
+    }
+
+    private static void writeHeader(ByteBuffer buffer, char type, int count) {
+        buffer.put((byte) type).put(Base10.encode(count)).put(CRLF);
+    }
+
+    /**
+     * A single load over its own connection, with a thread reading replies.
+     */
+    class Load implements Callable<Long> {
+        private SocketChannel channel;
+        private ByteBuffer marker;
+        private Replies output;
+        private CountDownLatch ready;
+        private FutureTask<Long> reader;
+
+        Load() throws IOException {
+            byte[] random = new byte[10];
+            new Random().nextBytes(random);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : random) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            this.marker  = Charsets.buffer(sb.toString());
+            this.channel = SocketChannel.open(address);
+            this.output  = new Replies(marker, (password != null ? 1 : 0) + (db != 0 ? 1 : 0));
+            this.ready   = new CountDownLatch(1);
+            this.reader  = new FutureTask<Long>(this);
+
+            Thread thread = new Thread(reader, "lettuce-bulk-load");
+            thread.setDaemon(true);
+            thread.start();
+
+            try {
+                handshake();
+            } catch (IOException e) {
+                close();
+                throw e;
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void handshake() throws IOException {
+            if (output.handshake == 0) return;
+
+            ByteBuffer chunk = ByteBuffer.allocate(64);
+            if (password != null) encode(new String[] { "AUTH", password }, chunk, this);
+            if (db != 0) encode(new String[] { "SELECT", String.valueOf(db) }, chunk, this);
+            chunk.flip();
+            write(chunk);
+
+            try {
+                if (!ready.await(timeout, unit)) throw new RedisException("Bulk load timed out");
+            } catch (InterruptedException e) {
+                throw new RedisCommandInterruptedException(e);
+            }
+            if (reader.isDone()) result(0);
+        }
+
+        void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (reader.isDone()) result(0);
+                bytes.addAndGet(channel.write(buffer));
+            }
+        }
+
+        long finish() throws IOException {
+            byte[] echo = new byte[marker.remaining()];
+            marker.duplicate().get(echo);
+
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            writeHeader(buffer, '*', 2);
+            writeHeader(buffer, '$', 4);
+            buffer.put("ECHO".getBytes(Charsets.ASCII)).put(CRLF);
+            writeHeader(buffer, '$', echo.length);
+            buffer.put(echo).put(CRLF);
+            buffer.flip();
+            write(buffer);
+
+            return result(timeout);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        @Override
+        public Long call() throws Exception {
+            RedisStateMachine<Object, Object> rsm = new RedisStateMachine<Object, Object>();
+            ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(64 * 1024);
+            ByteBuffer read = ByteBuffer.allocate(64 * 1024);
+            long count = 0;
+
+            try {
+                for (;;) {
+                    read.clear();
+                    if (channel.read(read) < 0) throw new RedisException("Connection closed");
+                    read.flip();
+                    buffer.writeBytes(read);
+
+                    while (rsm.decode(buffer, output)) {
+                        if (output.handshake > 0) {
+                            if (output.failure != null) throw new RedisException(output.failure);
+                            if (--output.handshake == 0) ready.countDown();
+                            continue;
+                        }
+                        if (output.echoed) return count;
+                        count++;
+                        replies.incrementAndGet();
+                    }
+                    buffer.discardReadBytes();
+                }
+            } finally {
+                ready.countDown();
+            }
+        }
+
+        private long result(long timeout) {
+            try {
+                return reader.get(timeout, unit);
+            } catch (TimeoutException e) {
+                throw new RedisException("Bulk load timed out");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RedisException) throw (RedisException) cause;
+                throw new RedisException("Bulk load failed", cause);
+            } catch (InterruptedException e) {
+                throw new RedisCommandInterruptedException(e);
+            }
+        }
+    }
+
+    /**
+     * Output shared by all replies that counts errors and recognizes the
+     * reply to the ECHO of the marker. Errors replying to AUTH or SELECT are
+     * kept apart and fail the load.
+     */
+    class Replies extends CommandOutput<Object, Object, Void> {
+        private ByteBuffer marker;
+        private boolean echoed;
+        private int handshake;
+        private String failure;
+
+        Replies(ByteBuffer marker, int handshake) {
+            super(null, null);
+            this.marker    = marker;
+            this.handshake = handshake;
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            echoed = bytes != null && marker.equals(bytes);
+        }
+
+        @Override
+        public void set(long integer) {
+            echoed = false;
+        }
+
+        @Override
+        public void setError(ByteBuffer error) {
+            echoed = false;
+            if (handshake > 0) {
+                failure = decodeAscii(error);
+                return;
+            }
+            errors.incrementAndGet();
+            synchronized (errorMessages) {
+                if (errorMessages.size() < MAX_ERRORS) errorMessages.add(decodeAscii(error));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.protocol.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable byte array usable as a map key.
+ *
+ * @author Will Glozer
+ */
+final class Bytes {
+    final byte[] bytes;
+    private final int hash;
+
+    Bytes(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash  = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Identify a command by its type and encoded arguments.
+     *
+     * @param type  Command type.
+     * @param args  Command args, if any.
+     *
+     * @return The command's identity.
+     */
+    static Bytes id(CommandType type, CommandArgs<?, ?> args) {
+        ByteBuffer buffer = args != null ? args.buffer() : ByteBuffer.allocate(0);
+        byte[] id = new byte[buffer.remaining() + 1];
+        id[0] = (byte) type.ordinal();
+        buffer.get(id, 1, id.length - 1);
+        return new Bytes(id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Bytes && Arrays.equals(bytes, ((Bytes) o).bytes));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
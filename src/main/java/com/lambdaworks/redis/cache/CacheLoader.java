@@ -0,0 +1,21 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+/**
+ * Computes the value of a key for a {@link ReadThroughCache}.
+ *
+ * @author Will Glozer
+ */
+public interface CacheLoader<K, V> {
+    /**
+     * Compute the current value of a key.
+     *
+     * @param key   Key.
+     *
+     * @return The value, or null if the key has no value.
+     *
+     * @throws Exception if the value cannot be computed.
+     */
+    V load(K key) throws Exception;
+}
@@ -0,0 +1,76 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.protocol.CommandOutput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Output that keeps a copy of the encoded bulk reply passed to the output
+ * it wraps.
+ *
+ * @author Will Glozer
+ */
+class CachingOutput<K, V, T> extends CommandOutput<K, V, T> {
+    private CommandOutput<K, V, T> output;
+    private byte[] value;
+
+    public CachingOutput(CommandOutput<K, V, T> output) {
+        super(null, null);
+        this.output = output;
+    }
+
+    /**
+     * Get the encoded reply.
+     *
+     * @return The reply, or null if it was nil or not a bulk reply.
+     */
+    public byte[] value() {
+        return value;
+    }
+
+    @Override
+    public T get() {
+        return output.get();
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        if (bytes != null) {
+            value = new byte[bytes.remaining()];
+            bytes.duplicate().get(value);
+        }
+        output.set(bytes);
+    }
+
+    @Override
+    public void set(long integer) {
+        output.set(integer);
+    }
+
+    @Override
+    public void setError(ByteBuffer error) {
+        output.setError(error);
+    }
+
+    @Override
+    public void setError(String error) {
+        output.setError(error);
+    }
+
+    @Override
+    public boolean hasError() {
+        return output.hasError();
+    }
+
+    @Override
+    public String getError() {
+        return output.getError();
+    }
+
+    @Override
+    public void complete(int depth) {
+        output.complete(depth);
+    }
+}
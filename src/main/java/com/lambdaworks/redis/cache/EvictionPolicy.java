@@ -0,0 +1,22 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+/**
+ * Policies for choosing the entry a full {@link NearCache} evicts.
+ *
+ * @author Will Glozer
+ */
+public enum EvictionPolicy {
+    /**
+     * Evict the least recently used entry.
+     */
+    LRU,
+
+    /**
+     * Evict the least frequently used of the oldest few entries. Frequencies
+     * are halved each time an entry survives eviction so that entries that
+     * were popular long ago eventually age out.
+     */
+    LFU
+}
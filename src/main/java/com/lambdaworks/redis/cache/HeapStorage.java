@@ -0,0 +1,96 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Storage of replies in a bounded map on the heap that evicts entries according
+ * to an {@link EvictionPolicy}.
+ *
+ * @author Will Glozer
+ */
+class HeapStorage implements Storage {
+    private static final int SAMPLES = 8;
+
+    private int maxSize;
+    private EvictionPolicy policy;
+    private LinkedHashMap<Bytes, Entry> entries;
+
+    HeapStorage(int maxSize, EvictionPolicy policy) {
+        this.maxSize = maxSize;
+        this.policy  = policy;
+        this.entries = new LinkedHashMap<Bytes, Entry>(16, 0.75f, policy == EvictionPolicy.LRU);
+    }
+
+    @Override
+    public ByteBuffer get(Bytes id, long now, long ttl) {
+        Entry entry = entries.get(id);
+        if (entry == null) return null;
+
+        if (ttl > 0 && now - entry.created > ttl) {
+            entries.remove(id);
+            return EXPIRED;
+        }
+
+        if (entry.frequency < Integer.MAX_VALUE) entry.frequency++;
+        return ByteBuffer.wrap(entry.value);
+    }
+
+    @Override
+    public boolean put(Bytes id, byte[] value, long now, List<Bytes> evicted) {
+        entries.remove(id);
+        while (entries.size() >= maxSize && !entries.isEmpty()) {
+            evicted.add(evict());
+        }
+        entries.put(id, new Entry(value, now));
+        return true;
+    }
+
+    @Override
+    public boolean remove(Bytes id) {
+        return entries.remove(id) != null;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    private Bytes evict() {
+        Iterator<Map.Entry<Bytes, Entry>> iterator = entries.entrySet().iterator();
+        Map.Entry<Bytes, Entry> victim = iterator.next();
+
+        if (policy == EvictionPolicy.LFU) {
+            for (int i = 1; i < SAMPLES && iterator.hasNext(); i++) {
+                Map.Entry<Bytes, Entry> candidate = iterator.next();
+                if (candidate.getValue().frequency < victim.getValue().frequency) {
+                    victim.getValue().frequency >>>= 1;
+                    victim = candidate;
+                } else {
+                    candidate.getValue().frequency >>>= 1;
+                }
+            }
+        }
+
+        entries.remove(victim.getKey());
+        return victim.getKey();
+    }
+
+    static class Entry {
+        final byte[] value;
+        final long created;
+        int frequency;
+
+        Entry(byte[] value, long created) {
+            this.value   = value;
+            this.created = created;
+        }
+    }
+}
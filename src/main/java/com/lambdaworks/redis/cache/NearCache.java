@@ -0,0 +1,301 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.CommandOutput;
+import com.lambdaworks.redis.pubsub.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded client-side cache of encoded GET and HGET replies, shared by any
+ * number of {@link NearCacheAsyncConnection connections}. Entries expire after
+ * a fixed time to live and are evicted according to an {@link EvictionPolicy}
+ * once the cache is full. Replies may instead be kept off the heap in
+ * {@link OffHeapStorage}. Replies are stored encoded and only decoded on a hit.
+ *
+ * The cache is kept coherent by invalidating keys written through a caching
+ * connection and keys announced on a {@link RedisPubSubConnection}, either
+ * keyspace notifications or an application channel whose messages are keys.
+ * A reply that was requested before its key was invalidated is not cached.
+ * The whole cache is cleared when the subscription is (re)established because
+ * invalidations may have been missed while disconnected.
+ *
+ * @author Will Glozer
+ */
+public class NearCache {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int STRIPES = 64;
+
+    private Storage storage;
+    private long ttl;
+    private Map<Bytes, List<Bytes>> groups;
+    private Map<Bytes, Bytes> keys;
+    private List<Bytes> evicted;
+    private long[] versions;
+
+    private AtomicLong hits          = new AtomicLong();
+    private AtomicLong misses        = new AtomicLong();
+    private AtomicLong evictions     = new AtomicLong();
+    private AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize   Maximum number of entries.
+     * @param ttl       Time to live of each entry, or 0 for no expiry.
+     * @param unit      Unit of time for the ttl.
+     * @param policy    Policy for evicting entries when the cache is full.
+     */
+    public NearCache(int maxSize, long ttl, TimeUnit unit, EvictionPolicy policy) {
+        this(new HeapStorage(maxSize, policy), ttl, unit);
+    }
+
+    /**
+     * Create a new cache that keeps replies off the heap.
+     *
+     * @param storage   Off-heap storage, which must not be shared.
+     * @param ttl       Time to live of each entry, or 0 for no expiry.
+     * @param unit      Unit of time for the ttl.
+     */
+    public NearCache(OffHeapStorage storage, long ttl, TimeUnit unit) {
+        this((Storage) storage, ttl, unit);
+    }
+
+    private NearCache(Storage storage, long ttl, TimeUnit unit) {
+        this.storage  = storage;
+        this.ttl      = unit.toNanos(ttl);
+        this.groups   = new HashMap<Bytes, List<Bytes>>();
+        this.keys     = new HashMap<Bytes, Bytes>();
+        this.evicted  = new ArrayList<Bytes>();
+        this.versions = new long[STRIPES];
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public synchronized int size() {
+        return storage.size();
+    }
+
+    /**
+     * Invalidate all cached replies for a key.
+     *
+     * @param key   Encoded key.
+     */
+    public synchronized void invalidate(byte[] key) {
+        versions[stripe(key)]++;
+        List<Bytes> ids = groups.remove(new Bytes(key));
+        if (ids != null) {
+            for (Bytes id : ids) {
+                storage.remove(id);
+                keys.remove(id);
+            }
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
+        storage.clear();
+        groups.clear();
+        keys.clear();
+    }
+
+    /**
+     * Invalidate keys announced by redis keyspace notifications for a database,
+     * which must be enabled on the server with
+     * <code>CONFIG SET notify-keyspace-events Kg$hxe</code> or <code>KA</code>.
+     * Generic, expired and evicted events are needed to see DEL, EXPIRE,
+     * RENAME and keys expired or evicted by the server.
+     *
+     * @param pubsub    Pub/sub connection used only for invalidation.
+     * @param codec     Codec of the pub/sub connection.
+     * @param db        Database number.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> void subscribeKeyspace(RedisPubSubConnection<K, V> pubsub, RedisCodec<K, V> codec, int db) {
+        byte[] prefix = ("__keyspace@" + db + "__:").getBytes(ASCII);
+        pubsub.addListener(new Invalidator<K, V>(codec, prefix));
+        pubsub.psubscribe(codec.decodeKey(ByteBuffer.wrap(concat(prefix, new byte[] { '*' }))));
+    }
+
+    /**
+     * Invalidate keys published as messages on an application channel.
+     *
+     * @param pubsub    Pub/sub connection used only for invalidation.
+     * @param codec     Codec of the pub/sub connection.
+     * @param channel   Channel on which keys are published.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> void subscribe(RedisPubSubConnection<K, V> pubsub, RedisCodec<K, V> codec, K channel) {
+        pubsub.addListener(new Invalidator<K, V>(codec, null));
+        pubsub.subscribe(channel);
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " invalidations=" + invalidations;
+    }
+
+    /**
+     * Decode a cached reply into a command's output. The reply is copied out
+     * of storage under the cache lock and decoded outside it.
+     *
+     * @param id        Identity of the command and its arguments.
+     * @param output    Output to decode the reply into.
+     *
+     * @return true if the reply was cached.
+     */
+    boolean get(Bytes id, CommandOutput<?, ?, ?> output) {
+        ByteBuffer value = copy(id);
+
+        if (value == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        hits.incrementAndGet();
+        output.set(value);
+        return true;
+    }
+
+    private synchronized ByteBuffer copy(Bytes id) {
+        ByteBuffer value = storage.get(id, System.nanoTime(), ttl);
+        if (value == Storage.EXPIRED) {
+            ungroup(id);
+            return null;
+        }
+        if (value == null) return null;
+
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Get the current version of a key, which changes each time it may
+     * have been invalidated.
+     *
+     * @param key   Encoded key.
+     *
+     * @return The version.
+     */
+    synchronized long version(byte[] key) {
+        return versions[stripe(key)];
+    }
+
+    /**
+     * Cache a reply unless its key was invalidated since the reply was requested.
+     *
+     * @param id        Identity of the command and its arguments.
+     * @param key       Encoded key.
+     * @param value     Encoded reply.
+     * @param version   Version of the key when the reply was requested.
+     */
+    synchronized void put(Bytes id, byte[] key, byte[] value, long version) {
+        if (versions[stripe(key)] != version) return;
+
+        if (storage.remove(id)) ungroup(id);
+        boolean stored = storage.put(id, value, System.nanoTime(), evicted);
+
+        for (Bytes victim : evicted) {
+            ungroup(victim);
+            evictions.incrementAndGet();
+        }
+        evicted.clear();
+        if (!stored) return;
+
+        Bytes group = new Bytes(key);
+        List<Bytes> ids = groups.get(group);
+        if (ids == null) {
+            ids = new ArrayList<Bytes>(1);
+            groups.put(group, ids);
+        }
+        ids.add(id);
+        keys.put(id, group);
+    }
+
+    private void ungroup(Bytes id) {
+        Bytes group = keys.remove(id);
+        List<Bytes> ids = group != null ? groups.get(group) : null;
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) groups.remove(group);
+        }
+    }
+
+    private static int stripe(byte[] key) {
+        return (Arrays.hashCode(key) & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    /**
+     * Invalidates the key named by keyspace notification channels, or by the
+     * messages of an application channel, and clears the cache whenever the
+     * subscription is established.
+     */
+    class Invalidator<K, V> extends RedisPubSubAdapter<K, V> {
+        private RedisCodec<K, V> codec;
+        private byte[] prefix;
+
+        Invalidator(RedisCodec<K, V> codec, byte[] prefix) {
+            this.codec  = codec;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void message(K channel, V message) {
+            if (prefix == null) invalidate(codec.encodeValue(message));
+        }
+
+        @Override
+        public void message(K pattern, K channel, V message) {
+            if (prefix == null) return;
+            byte[] bytes = codec.encodeKey(channel);
+            if (bytes.length < prefix.length) return;
+            for (int i = 0; i < prefix.length; i++) {
+                if (bytes[i] != prefix[i]) return;
+            }
+            invalidate(Arrays.copyOfRange(bytes, prefix.length, bytes.length));
+        }
+
+        @Override
+        public void subscribed(K channel, long count) {
+            if (prefix == null) clear();
+        }
+
+        @Override
+        public void psubscribed(K pattern, long count) {
+            if (prefix != null) clear();
+        }
+    }
+}
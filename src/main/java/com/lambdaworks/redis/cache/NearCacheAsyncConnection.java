@@ -0,0 +1,174 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * An asynchronous thread-safe connection that answers GET and HGET from a
+ * {@link NearCache} when possible, and otherwise sends commands to the wrapped
+ * connection. Replies to GET and HGET are cached, except nil replies and
+ * replies within MULTI, and every key written through this connection is
+ * invalidated when the write is sent and again when it completes, so a reply
+ * read concurrently with the write is never left in the cache.
+ *
+ * The cache does not distinguish databases, so all connections sharing a
+ * cache should use the same database.
+ *
+ * @author Will Glozer
+ */
+public class NearCacheAsyncConnection<K, V> extends RedisAsyncConnection<K, V> {
+    private NearCache cache;
+    private RedisAsyncConnection<K, V> connection;
+    private boolean transaction;
+
+    /**
+     * Initialize a new connection.
+     *
+     * @param cache         Cache shared by connections.
+     * @param connection    Connection to send commands to.
+     * @param codec         Codec used to encode/decode keys and values.
+     * @param timeout       Maximum time to wait for a response.
+     * @param unit          Unit of time for the timeout.
+     */
+    public NearCacheAsyncConnection(NearCache cache, RedisAsyncConnection<K, V> connection,
+                                    RedisCodec<K, V> codec, long timeout, TimeUnit unit) {
+        super(new LinkedBlockingQueue<Command<K, V, ?>>(), codec, timeout, unit);
+        this.cache      = cache;
+        this.connection = connection;
+    }
+
+    public NearCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        if ((type == GET || type == HGET) && !inTransaction()) {
+            Bytes id = Bytes.id(type, args);
+            if (cache.get(id, output)) {
+                Command<K, V, T> cmd = new Command<K, V, T>(type, output, args, false);
+                cmd.complete();
+                return cmd;
+            }
+
+            byte[] key = args.firstKey();
+            CachingOutput<K, V, T> caching = new CachingOutput<K, V, T>(output);
+            return connection.dispatch(new FillCommand<T>(type, caching, args, id, key, cache.version(key)));
+        }
+
+        if (type.isReadOnly() || args == null) {
+            return connection.dispatch(type, output, args);
+        }
+
+        invalidate(type, args);
+        return connection.dispatch(new WriteCommand<T>(type, output, args, inTransaction()));
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
+        invalidate(cmd.type, cmd.getArgs());
+        return connection.dispatch(cmd);
+    }
+
+    @Override
+    public String auth(String password) {
+        return connection.auth(password);
+    }
+
+    @Override
+    public String select(int db) {
+        String status = connection.select(db);
+        cache.clear();
+        return status;
+    }
+
+    @Override
+    public synchronized Future<String> multi() {
+        transaction = true;
+        return connection.multi();
+    }
+
+    @Override
+    public synchronized Future<List<Object>> exec() {
+        transaction = false;
+        return connection.exec();
+    }
+
+    @Override
+    public synchronized Future<String> discard() {
+        transaction = false;
+        return connection.discard();
+    }
+
+    @Override
+    public void setTimeout(long timeout, TimeUnit unit) {
+        super.setTimeout(timeout, unit);
+        connection.setTimeout(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+
+    private synchronized boolean inTransaction() {
+        return transaction;
+    }
+
+    private void invalidate(CommandType type, CommandArgs<K, V> args) {
+        if (type.isReadOnly() || args == null) return;
+        for (byte[] key : args.keys()) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * A write that invalidates its keys again on completion.
+     */
+    class WriteCommand<T> extends Command<K, V, T> {
+        WriteCommand(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args, boolean multi) {
+            super(type, output, args, multi);
+        }
+
+        @Override
+        public void complete() {
+            invalidate(type, args);
+            super.complete();
+        }
+    }
+
+    /**
+     * A GET or HGET that caches its reply on completion.
+     */
+    class FillCommand<T> extends Command<K, V, T> {
+        private Bytes id;
+        private byte[] key;
+        private long version;
+
+        FillCommand(CommandType type, CachingOutput<K, V, T> output, CommandArgs<K, V> args,
+                    Bytes id, byte[] key, long version) {
+            super(type, output, args, false);
+            this.id      = id;
+            this.key     = key;
+            this.version = version;
+        }
+
+        @Override
+        public void complete() {
+            CommandOutput<K, V, T> output = getOutput();
+            if (output != null) {
+                byte[] value = ((CachingOutput<K, V, T>) output).value();
+                if (value != null && !output.hasError()) cache.put(id, key, value, version);
+            }
+            super.complete();
+        }
+    }
+}
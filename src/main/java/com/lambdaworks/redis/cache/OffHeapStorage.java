@@ -0,0 +1,230 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Storage of {@link NearCache} replies in direct memory, so cached values add
+ * nothing to the heap the garbage collector must trace. Entries are appended
+ * to a ring of fixed size slabs and located with an open-addressing index of
+ * primitive arrays. When the ring is full the oldest slab is reused and every
+ * entry still stored in it is evicted, so entries are evicted in the order
+ * they were cached regardless of the cache's {@link EvictionPolicy}.
+ *
+ * Each entry holds its length, its creation time, the identity of the command
+ * and the encoded reply. Replies are decoded directly from the slab on a hit.
+ *
+ * @author Will Glozer
+ */
+public class OffHeapStorage implements Storage {
+    private static final int HEADER = 16;
+    private static final long EMPTY = -1;
+
+    private ByteBuffer[] slabs;
+    private int[] limits;
+    private int slabSize;
+    private int current;
+    private int position;
+
+    private long[] addresses;
+    private int[] hashes;
+    private int mask;
+    private int size;
+
+    /**
+     * Create new off-heap storage. Slabs are allocated as they are first used.
+     *
+     * @param capacity  Maximum number of bytes of direct memory used.
+     * @param slabSize  Size in bytes of each slab, which limits the size of an entry.
+     */
+    public OffHeapStorage(long capacity, int slabSize) {
+        long count = (capacity + slabSize - 1) / slabSize;
+        if (slabSize <= HEADER || count > Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid slab size");
+
+        this.slabs     = new ByteBuffer[(int) Math.max(count, 2)];
+        this.limits    = new int[slabs.length];
+        this.slabSize  = slabSize;
+        this.addresses = new long[1024];
+        this.hashes    = new int[addresses.length];
+        this.mask      = addresses.length - 1;
+        Arrays.fill(addresses, EMPTY);
+    }
+
+    @Override
+    public ByteBuffer get(Bytes id, long now, long ttl) {
+        int slot = find(id);
+        if (slot < 0) return null;
+
+        long address = addresses[slot];
+        ByteBuffer slab = slabs[(int) (address >>> 32)];
+        int offset = (int) address;
+
+        if (ttl > 0 && now - slab.getLong(offset + 8) > ttl) {
+            delete(slot);
+            return EXPIRED;
+        }
+
+        ByteBuffer value = slab.duplicate();
+        int start = offset + HEADER + slab.getInt(offset);
+        value.limit(start + slab.getInt(offset + 4)).position(start);
+        return value;
+    }
+
+    @Override
+    public boolean put(Bytes id, byte[] value, long now, List<Bytes> evicted) {
+        byte[] key = id.bytes;
+        int length = HEADER + key.length + value.length;
+        if (length > slabSize) return false;
+
+        if (slabs[current] == null || position + length > slabSize) {
+            advance(evicted);
+        }
+
+        ByteBuffer slab = slabs[current];
+        int offset = position;
+        slab.position(offset);
+        slab.putInt(key.length).putInt(value.length).putLong(now).put(key).put(value);
+        position += length;
+        limits[current] = position;
+
+        int slot = find(id);
+        if (slot < 0) {
+            if (size + 1 > addresses.length >>> 1) resize();
+            int hash = hash(id);
+            slot = hash & mask;
+            while (addresses[slot] != EMPTY) slot = (slot + 1) & mask;
+            hashes[slot] = hash;
+            size++;
+        }
+        addresses[slot] = (long) current << 32 | offset;
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(Bytes id) {
+        int slot = find(id);
+        if (slot < 0) return false;
+        delete(slot);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(addresses, EMPTY);
+        Arrays.fill(limits, 0);
+        size     = 0;
+        current  = 0;
+        position = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of bytes of direct memory allocated.
+     *
+     * @return Bytes allocated.
+     */
+    public long getAllocated() {
+        long allocated = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) allocated += slab.capacity();
+        }
+        return allocated;
+    }
+
+    private void advance(List<Bytes> evicted) {
+        if (slabs[current] != null) {
+            current = (current + 1) % slabs.length;
+        }
+        position = 0;
+
+        if (slabs[current] == null) {
+            slabs[current] = ByteBuffer.allocateDirect(slabSize);
+            return;
+        }
+
+        ByteBuffer slab = slabs[current];
+        for (int offset = 0; offset < limits[current]; ) {
+            int idLength = slab.getInt(offset);
+            int valueLength = slab.getInt(offset + 4);
+
+            byte[] key = new byte[idLength];
+            slab.position(offset + HEADER);
+            slab.get(key);
+            Bytes id = new Bytes(key);
+
+            int slot = find(id);
+            if (slot >= 0 && addresses[slot] == ((long) current << 32 | offset)) {
+                delete(slot);
+                evicted.add(id);
+            }
+
+            offset += HEADER + idLength + valueLength;
+        }
+        limits[current] = 0;
+    }
+
+    private int find(Bytes id) {
+        int hash = hash(id);
+        for (int slot = hash & mask; addresses[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches(addresses[slot], id.bytes)) return slot;
+        }
+        return -1;
+    }
+
+    private boolean matches(long address, byte[] key) {
+        ByteBuffer slab = slabs[(int) (address >>> 32)];
+        int offset = (int) address;
+        if (slab.getInt(offset) != key.length) return false;
+        offset += HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (slab.get(offset + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private void delete(int slot) {
+        addresses[slot] = EMPTY;
+        size--;
+
+        for (int next = (slot + 1) & mask; addresses[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hashes[next] & mask;
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                addresses[slot] = addresses[next];
+                hashes[slot]    = hashes[next];
+                addresses[next] = EMPTY;
+                slot = next;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] addresses = this.addresses;
+        int[] hashes = this.hashes;
+
+        this.addresses = new long[addresses.length << 1];
+        this.hashes    = new int[this.addresses.length];
+        this.mask      = this.addresses.length - 1;
+        Arrays.fill(this.addresses, EMPTY);
+
+        for (int i = 0; i < addresses.length; i++) {
+            if (addresses[i] == EMPTY) continue;
+            int slot = hashes[i] & mask;
+            while (this.addresses[slot] != EMPTY) slot = (slot + 1) & mask;
+            this.addresses[slot] = addresses[i];
+            this.hashes[slot]    = hashes[i];
+        }
+    }
+
+    private static int hash(Bytes id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,224 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.output.*;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * A cache of values computed by a {@link CacheLoader} and stored in redis with
+ * a TTL. Each read sends GET and PTTL in one pipelined write. A miss loads the
+ * value on the calling thread and stores it with PSETEX, and a hit whose TTL is
+ * within the refresh window reloads the value on a background thread while
+ * readers keep getting the current value.
+ *
+ * At most one load or refresh of a key is in flight per cache, and readers
+ * that miss while it is in flight wait for its result.
+ *
+ * @author Will Glozer
+ */
+public class ReadThroughCache<K, V> {
+    private RedisAsyncConnection<K, V> connection;
+    private RedisCodec<K, V> codec;
+    private CacheLoader<K, V> loader;
+    private long ttl;
+    private long refresh;
+    private ExecutorService executor;
+    private ConcurrentHashMap<Bytes, FutureTask<V>> loads;
+    private AtomicLong hits;
+    private AtomicLong misses;
+    private AtomicLong refreshes;
+    private AtomicLong failures;
+
+    /**
+     * Create a new cache.
+     *
+     * @param connection    Connection values are read from and stored with.
+     * @param codec         Codec used to encode/decode keys and values.
+     * @param loader        Loader that computes values.
+     * @param ttl           Time to live of stored values.
+     * @param refresh       Remaining time to live at which values are refreshed.
+     * @param unit          Unit of time for the ttl and refresh.
+     */
+    public ReadThroughCache(RedisAsyncConnection<K, V> connection, RedisCodec<K, V> codec, CacheLoader<K, V> loader,
+                            long ttl, long refresh, TimeUnit unit) {
+        this.connection = connection;
+        this.codec      = codec;
+        this.loader     = loader;
+        this.ttl        = unit.toMillis(ttl);
+        this.refresh    = unit.toMillis(refresh);
+        this.loads      = new ConcurrentHashMap<Bytes, FutureTask<V>>();
+        this.hits       = new AtomicLong();
+        this.misses     = new AtomicLong();
+        this.refreshes  = new AtomicLong();
+        this.failures   = new AtomicLong();
+
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lettuce-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the value of a key, loading it on a miss.
+     *
+     * @param key   Key.
+     *
+     * @return The value, or null if the loader has no value for the key.
+     *
+     * @throws RedisException if a command fails or the loader throws an exception.
+     */
+    public V get(K key) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key);
+        Command<K, V, V> get = new Command<K, V, V>(GET, new ValueOutput<K, V>(codec), args, false);
+        args = new CommandArgs<K, V>(codec).addKey(key);
+        Command<K, V, Long> pttl = new Command<K, V, Long>(PTTL, new IntegerOutput<K, V>(codec), args, false);
+
+        List<Command<K, V, ?>> cmds = new ArrayList<Command<K, V, ?>>(2);
+        cmds.add(get);
+        cmds.add(pttl);
+        connection.dispatch(cmds);
+
+        V value = await(get);
+        Long remaining = await(pttl);
+        Bytes id = new Bytes(codec.encodeKey(key));
+
+        if (value == null) {
+            misses.incrementAndGet();
+            return load(key, id);
+        }
+
+        hits.incrementAndGet();
+        if (remaining != null && remaining >= 0 && remaining <= refresh) {
+            refresh(key, id);
+        }
+        return value;
+    }
+
+    /**
+     * Stop refreshing values in the background. The connection remains open.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " refreshes=" + refreshes + " failures=" + failures;
+    }
+
+    private V load(K key, Bytes id) {
+        FutureTask<V> task = loads.get(id);
+        if (task == null) {
+            FutureTask<V> load = new FutureTask<V>(new Load(key));
+            task = loads.putIfAbsent(id, load);
+            if (task == null) {
+                task = load;
+                run(id, load);
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RedisException) throw (RedisException) cause;
+            throw new RedisException("Failed to load value", cause);
+        } catch (InterruptedException e) {
+            throw new RedisCommandInterruptedException(e);
+        }
+    }
+
+    private void refresh(K key, final Bytes id) {
+        if (loads.containsKey(id)) return;
+
+        final FutureTask<V> refresh = new FutureTask<V>(new Load(key));
+        if (loads.putIfAbsent(id, refresh) != null) return;
+
+        refreshes.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ReadThroughCache.this.run(id, refresh);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loads.remove(id, refresh);
+        }
+    }
+
+    private void run(Bytes id, FutureTask<V> task) {
+        try {
+            task.run();
+        } finally {
+            loads.remove(id, task);
+        }
+    }
+
+    private <T> T await(Command<K, V, T> cmd) {
+        if (!connection.awaitAll(cmd)) {
+            cmd.cancel(true);
+            throw new RedisException("Command timed out");
+        }
+        CommandOutput<K, V, T> output = cmd.getOutput();
+        if (output.hasError()) throw new RedisException(output.getError());
+        return output.get();
+    }
+
+    /**
+     * Load the value of a key and store it with its TTL.
+     */
+    class Load implements Callable<V> {
+        private K key;
+
+        Load(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public V call() throws Exception {
+            V value;
+            try {
+                value = loader.load(key);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                throw e;
+            }
+
+            if (value != null) {
+                CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(key).add(ttl).addValue(value);
+                await(connection.dispatch(PSETEX, new StatusOutput<K, V>(codec), args));
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.output.RecordingOutput;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * An asynchronous thread-safe connection that coalesces identical reads. A
+ * read-only command with the same type and encoded arguments as one already
+ * in flight is not sent, instead it completes with a copy of the reply to the
+ * command in flight. Reads within MULTI and reads with random replies are
+ * always sent. Sending any other command ends coalescing with the reads in
+ * flight, so a read issued after a write never observes an earlier reply.
+ *
+ * @author Will Glozer
+ */
+public class SingleFlightAsyncConnection<K, V> extends RedisAsyncConnection<K, V> {
+    private static final EnumSet<CommandType> RANDOM = EnumSet.of(RANDOMKEY, SRANDMEMBER);
+
+    private RedisAsyncConnection<K, V> connection;
+    private Map<Bytes, Flight> flights;
+    private AtomicLong coalesced;
+    private boolean transaction;
+
+    /**
+     * Initialize a new connection.
+     *
+     * @param connection    Connection to send commands to.
+     * @param codec         Codec used to encode/decode keys and values.
+     * @param timeout       Maximum time to wait for a response.
+     * @param unit          Unit of time for the timeout.
+     */
+    public SingleFlightAsyncConnection(RedisAsyncConnection<K, V> connection, RedisCodec<K, V> codec,
+                                       long timeout, TimeUnit unit) {
+        super(new LinkedBlockingQueue<Command<K, V, ?>>(), codec, timeout, unit);
+        this.connection = connection;
+        this.flights    = new HashMap<Bytes, Flight>();
+        this.coalesced  = new AtomicLong();
+    }
+
+    /**
+     * Get the number of reads that were answered by a read already in flight.
+     *
+     * @return Number of coalesced reads.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Get the number of distinct reads currently in flight.
+     *
+     * @return Number of reads in flight.
+     */
+    public int getInFlight() {
+        synchronized (flights) {
+            return flights.size();
+        }
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        if (coalesce(type)) {
+            return join(new Command<K, V, T>(type, output, args, false));
+        }
+        Command<K, V, T> cmd = connection.dispatch(type, output, args);
+        if (!type.isReadOnly()) ground();
+        return cmd;
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
+        if (coalesce(cmd.type)) {
+            return join(cmd);
+        }
+        connection.dispatch(cmd);
+        if (!cmd.type.isReadOnly()) ground();
+        return cmd;
+    }
+
+    @Override
+    public String auth(String password) {
+        return connection.auth(password);
+    }
+
+    @Override
+    public String select(int db) {
+        return connection.select(db);
+    }
+
+    @Override
+    public synchronized Future<String> multi() {
+        transaction = true;
+        return connection.multi();
+    }
+
+    @Override
+    public synchronized Future<List<Object>> exec() {
+        transaction = false;
+        return connection.exec();
+    }
+
+    @Override
+    public synchronized Future<String> discard() {
+        transaction = false;
+        return connection.discard();
+    }
+
+    @Override
+    public void setTimeout(long timeout, TimeUnit unit) {
+        super.setTimeout(timeout, unit);
+        connection.setTimeout(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+
+    private synchronized boolean coalesce(CommandType type) {
+        return !transaction && type.isReadOnly() && !RANDOM.contains(type);
+    }
+
+    private <T> Command<K, V, T> join(Command<K, V, T> cmd) {
+        Bytes id = Bytes.id(cmd.type, cmd.getArgs());
+        Flight flight;
+
+        synchronized (flights) {
+            flight = flights.get(id);
+            if (flight != null) {
+                flight.waiters.add(cmd);
+                coalesced.incrementAndGet();
+                return cmd;
+            }
+            flight = new Flight(id, cmd.type, cmd.getArgs());
+            flight.waiters.add(cmd);
+            flights.put(id, flight);
+        }
+
+        try {
+            connection.dispatch(flight);
+        } catch (RuntimeException e) {
+            for (Command<K, V, ?> waiter : land(flight)) {
+                CommandOutput<K, V, ?> output = waiter.getOutput();
+                if (waiter == cmd || output == null) continue;
+                output.setError(e.getMessage());
+                waiter.complete();
+            }
+            throw e;
+        }
+
+        return cmd;
+    }
+
+    private List<Command<K, V, ?>> land(Flight flight) {
+        synchronized (flights) {
+            if (flights.get(flight.id) == flight) flights.remove(flight.id);
+            return flight.waiters;
+        }
+    }
+
+    /**
+     * Stop coalescing with the reads in flight, which were sent before the
+     * command just dispatched. They still complete their current waiters.
+     */
+    private void ground() {
+        synchronized (flights) {
+            flights.clear();
+        }
+    }
+
+    /**
+     * The single command sent for all identical reads, which records its reply
+     * and replays it into each waiting command on completion.
+     */
+    class Flight extends Command<K, V, Void> {
+        private Bytes id;
+        private RecordingOutput<K, V> recording;
+        private List<Command<K, V, ?>> waiters;
+
+        Flight(Bytes id, CommandType type, CommandArgs<K, V> args) {
+            this(id, type, args, new RecordingOutput<K, V>());
+        }
+
+        private Flight(Bytes id, CommandType type, CommandArgs<K, V> args, RecordingOutput<K, V> recording) {
+            super(type, recording, args, false);
+            this.id        = id;
+            this.recording = recording;
+            this.waiters   = new ArrayList<Command<K, V, ?>>(1);
+        }
+
+        @Override
+        public void complete() {
+            super.complete();
+            for (Command<K, V, ?> waiter : land(this)) {
+                CommandOutput<K, V, ?> output = waiter.getOutput();
+                if (output == null || waiter.isDone()) continue;
+                try {
+                    recording.replay(output);
+                } catch (RuntimeException e) {
+                    output.setError(e.toString());
+                }
+                waiter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Storage of the encoded replies held by a {@link NearCache}. Storage is not
+ * thread-safe, the cache serializes all access.
+ *
+ * @author Will Glozer
+ */
+interface Storage {
+    /**
+     * Returned by {@link #get} when the entry has expired and was removed.
+     */
+    ByteBuffer EXPIRED = ByteBuffer.allocate(0);
+
+    /**
+     * Get a stored reply. The returned buffer is only valid until the storage
+     * is next modified.
+     *
+     * @param id    Identity of the command and its arguments.
+     * @param now   Current time in nanoseconds.
+     * @param ttl   Time to live in nanoseconds, or 0 for no expiry.
+     *
+     * @return The encoded reply, null if not stored, or {@link #EXPIRED}.
+     */
+    ByteBuffer get(Bytes id, long now, long ttl);
+
+    /**
+     * Store a reply, evicting other entries if there is no space.
+     *
+     * @param id        Identity of the command and its arguments.
+     * @param value     Encoded reply.
+     * @param now       Current time in nanoseconds.
+     * @param evicted   List to which the identity of each evicted entry is added.
+     *
+     * @return true if the reply was stored.
+     */
+    boolean put(Bytes id, byte[] value, long now, List<Bytes> evicted);
+
+    /**
+     * Remove a stored reply.
+     *
+     * @param id    Identity of the command and its arguments.
+     *
+     * @return true if the reply was stored.
+     */
+    boolean remove(Bytes id);
+
+    void clear();
+
+    int size();
+}
@@ -0,0 +1,332 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cache;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.output.StatusOutput;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * Buffers SET, SETEX and HSET on the client and periodically writes only the
+ * latest value of each key or hash field, plain values with MSET and hash
+ * fields with one HMSET per hash, all in one pipelined write. A write replaces
+ * any buffered write to the same key or field, and SET or SETEX of a key drops
+ * its buffered hash fields since the key is overwritten.
+ *
+ * When the buffer holds its maximum number of values the next writer flushes
+ * it first, and fails if the connection is closed. Reads through other
+ * connections do not see buffered values, which are lost if the process dies
+ * before they are flushed.
+ *
+ * @author Will Glozer
+ */
+public class WriteBehindBuffer<K, V> {
+    private static final int MSET_KEYS = 512;
+
+    private RedisAsyncConnection<K, V> connection;
+    private RedisCodec<K, V> codec;
+    private int maxSize;
+    private ScheduledExecutorService scheduler;
+    private final Object flushing = new Object();
+    private Map<Bytes, Value> values;
+    private Map<Bytes, Hash> hashes;
+    private int size;
+    private long writes;
+    private long coalesced;
+    private long flushes;
+    private long commands;
+
+    /**
+     * Create a new buffer that flushes to a connection.
+     *
+     * @param connection    Connection to flush writes to.
+     * @param codec         Codec used to encode keys and values.
+     * @param maxSize       Maximum number of buffered values and hash fields.
+     * @param interval      Time between flushes.
+     * @param unit          Unit of time for the interval.
+     */
+    public WriteBehindBuffer(RedisAsyncConnection<K, V> connection, RedisCodec<K, V> codec, int maxSize,
+                             long interval, TimeUnit unit) {
+        this.connection = connection;
+        this.codec      = codec;
+        this.maxSize    = maxSize;
+        this.values     = new LinkedHashMap<Bytes, Value>();
+        this.hashes     = new LinkedHashMap<Bytes, Hash>();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lettuce-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    // writes remain buffered until the next flush
+                }
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Buffer a SET of a key.
+     *
+     * @param key   Key.
+     * @param value Value.
+     */
+    public void set(K key, V value) {
+        put(key, new Value(key, value, -1));
+    }
+
+    /**
+     * Buffer a SETEX of a key.
+     *
+     * @param key       Key.
+     * @param seconds   Time to live in seconds.
+     * @param value     Value.
+     */
+    public void setex(K key, long seconds, V value) {
+        put(key, new Value(key, value, seconds));
+    }
+
+    /**
+     * Buffer an HSET of a hash field.
+     *
+     * @param key   Key of the hash.
+     * @param field Field.
+     * @param value Value.
+     */
+    public void hset(K key, K field, V value) {
+        Bytes id = new Bytes(codec.encodeKey(key));
+        Bytes fid = new Bytes(codec.encodeKey(field));
+        if (size() >= maxSize) flush();
+
+        synchronized (this) {
+            Hash hash = hashes.get(id);
+            if (hash == null) {
+                hash = new Hash(key);
+                hashes.put(id, hash);
+            }
+            if (hash.fields.put(fid, new Field(field, value)) == null) {
+                size++;
+            } else {
+                coalesced++;
+            }
+            writes++;
+        }
+    }
+
+    /**
+     * Write all buffered values now, as one pipelined write. Writes made while
+     * the connection is closed remain buffered.
+     *
+     * @return Futures of the commands sent.
+     *
+     * @throws RedisException if the connection is closed.
+     */
+    public List<Future<String>> flush() {
+        return new ArrayList<Future<String>>(flushCommands());
+    }
+
+    private List<Command<K, V, String>> flushCommands() {
+        synchronized (flushing) {
+            return flush0();
+        }
+    }
+
+    private List<Command<K, V, String>> flush0() {
+        Map<Bytes, Value> values;
+        Map<Bytes, Hash> hashes;
+
+        synchronized (this) {
+            flushes++;
+            if (size == 0) return Collections.<Command<K, V, String>>emptyList();
+            values = this.values;
+            hashes = this.hashes;
+            this.values = new LinkedHashMap<Bytes, Value>();
+            this.hashes = new LinkedHashMap<Bytes, Hash>();
+            this.size   = 0;
+        }
+
+        List<Command<K, V, String>> cmds = new ArrayList<Command<K, V, String>>();
+        CommandArgs<K, V> mset = null;
+        int count = 0;
+
+        for (Value value : values.values()) {
+            if (value.seconds >= 0) {
+                CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(value.key);
+                args.add(value.seconds).addValue(value.value);
+                cmds.add(command(SETEX, args));
+                continue;
+            }
+            if (mset == null) mset = new CommandArgs<K, V>(codec);
+            mset.addKey(value.key).addValue(value.value);
+            if (++count == MSET_KEYS) {
+                cmds.add(command(MSET, mset));
+                mset  = null;
+                count = 0;
+            }
+        }
+        if (mset != null) cmds.add(command(MSET, mset));
+
+        for (Hash hash : hashes.values()) {
+            CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(hash.key);
+            for (Field field : hash.fields.values()) {
+                args.addKey(field.field).addValue(field.value);
+            }
+            cmds.add(command(HMSET, args));
+        }
+
+        try {
+            connection.dispatch(cmds);
+        } catch (RuntimeException e) {
+            restore(values, hashes);
+            throw e;
+        }
+
+        synchronized (this) {
+            commands += cmds.size();
+        }
+
+        return cmds;
+    }
+
+    /**
+     * Stop flushing periodically and flush all buffered values, waiting for
+     * their replies up to the connection's timeout. The connection remains open.
+     *
+     * @throws RedisException if the writes were not acknowledged in time or failed.
+     */
+    public void close() {
+        scheduler.shutdown();
+        List<Command<K, V, String>> cmds = flushCommands();
+        if (!connection.awaitAll(cmds.toArray(new Future<?>[cmds.size()]))) {
+            throw new RedisException("Write-behind flush timed out");
+        }
+        for (Command<K, V, String> cmd : cmds) {
+            CommandOutput<K, V, String> output = cmd.getOutput();
+            if (output.hasError()) throw new RedisException(output.getError());
+        }
+    }
+
+    /**
+     * Get the number of buffered values and hash fields.
+     *
+     * @return Number of buffered values.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    public synchronized long getCommands() {
+        return commands;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "size=" + size + " writes=" + writes + " coalesced=" + coalesced +
+               " flushes=" + flushes + " commands=" + commands;
+    }
+
+    private void put(K key, Value value) {
+        Bytes id = new Bytes(codec.encodeKey(key));
+        if (size() >= maxSize) flush();
+
+        synchronized (this) {
+            Hash hash = hashes.remove(id);
+            if (hash != null) size -= hash.fields.size();
+
+            if (values.put(id, value) == null) {
+                size++;
+            } else {
+                coalesced++;
+            }
+            writes++;
+        }
+    }
+
+    private synchronized void restore(Map<Bytes, Value> values, Map<Bytes, Hash> hashes) {
+        for (Map.Entry<Bytes, Value> entry : values.entrySet()) {
+            Bytes id = entry.getKey();
+            if (!this.values.containsKey(id) && !this.hashes.containsKey(id)) {
+                this.values.put(id, entry.getValue());
+                size++;
+            }
+        }
+
+        for (Map.Entry<Bytes, Hash> entry : hashes.entrySet()) {
+            Bytes id = entry.getKey();
+            if (this.values.containsKey(id)) continue;
+            Hash hash = this.hashes.get(id);
+            if (hash == null) {
+                hash = new Hash(entry.getValue().key);
+                this.hashes.put(id, hash);
+            }
+            for (Map.Entry<Bytes, Field> field : entry.getValue().fields.entrySet()) {
+                if (!hash.fields.containsKey(field.getKey())) {
+                    hash.fields.put(field.getKey(), field.getValue());
+                    size++;
+                }
+            }
+        }
+    }
+
+    private Command<K, V, String> command(CommandType type, CommandArgs<K, V> args) {
+        return new Command<K, V, String>(type, new StatusOutput<K, V>(codec), args, false);
+    }
+
+    class Value {
+        final K key;
+        final V value;
+        final long seconds;
+
+        Value(K key, V value, long seconds) {
+            this.key     = key;
+            this.value   = value;
+            this.seconds = seconds;
+        }
+    }
+
+    class Hash {
+        final K key;
+        final Map<Bytes, Field> fields;
+
+        Hash(K key) {
+            this.key    = key;
+            this.fields = new LinkedHashMap<Bytes, Field>();
+        }
+    }
+
+    class Field {
+        final K field;
+        final V value;
+
+        Field(K field, V value) {
+            this.field = field;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cluster;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An asynchronous thread-safe connection to a redis cluster that sends each
+ * command to the node serving the hash slot of its first key. Commands without
+ * a key are sent to any node. <code>MOVED</code> and <code>ASK</code> replies
+ * are followed transparently, and a <code>MOVED</code> reply updates the
+ * client's slot map. Connections to each node are opened on first use.
+ *
+ * Multi-key commands must only use keys in one slot and transactions are not
+ * supported, use {@link #getConnection} to run MULTI/EXEC on a single node.
+ * SCAN is not supported since a cursor covers a single node.
+ *
+ * @author Will Glozer
+ */
+public class ClusterAsyncConnection<K, V> extends RedisAsyncConnection<K, V> {
+    private RedisClusterClient client;
+    private Map<String, RedisAsyncConnection<K, V>> connections;
+    private String password;
+    private boolean closed;
+
+    /**
+     * Initialize a new connection.
+     *
+     * @param client  Client that owns the slot map.
+     * @param codec   Codec used to encode/decode keys and values.
+     * @param timeout Maximum time to wait for a response.
+     * @param unit    Unit of time for the timeout.
+     */
+    public ClusterAsyncConnection(RedisClusterClient client, RedisCodec<K, V> codec, long timeout, TimeUnit unit) {
+        super(new LinkedBlockingQueue<Command<K, V, ?>>(), codec, timeout, unit);
+        this.client      = client;
+        this.connections = new HashMap<String, RedisAsyncConnection<K, V>>();
+    }
+
+    /**
+     * Get the connection to the node currently serving a key's slot.
+     *
+     * @param key   Key.
+     *
+     * @return The node's connection.
+     */
+    public RedisAsyncConnection<K, V> getConnection(K key) {
+        return connection(client.getNode(SlotHash.getSlot(codec.encodeKey(key))));
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        return dispatch(new ClusterCommand<K, V, T>(this, type, output, args));
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
+        return connection(node(cmd)).dispatch(cmd);
+    }
+
+    /**
+     * Create a new batch that pipelines commands to each node, see {@link ClusterBatch}.
+     *
+     * @return A new batch.
+     */
+    public ClusterBatch<K, V> batch() {
+        return new ClusterBatch<K, V>(this, codec, timeout, unit);
+    }
+
+    @Override
+    public String auth(String password) {
+        String status = null;
+        for (RedisAsyncConnection<K, V> connection : connections()) {
+            status = connection.auth(password);
+        }
+        this.password = password;
+        return status;
+    }
+
+    @Override
+    public Future<String> multi() {
+        throw new RedisException("MULTI is not supported by cluster connections");
+    }
+
+    @Override
+    public Future<ScanCursor<K>> scan(String cursor, ScanArgs scanArgs) {
+        throw new RedisException("SCAN is not supported by cluster connections");
+    }
+
+    @Override
+    public synchronized void setTimeout(long timeout, TimeUnit unit) {
+        super.setTimeout(timeout, unit);
+        for (RedisAsyncConnection<K, V> connection : connections.values()) {
+            connection.setTimeout(timeout, unit);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (RedisAsyncConnection<K, V> connection : connections.values()) {
+            connection.close();
+        }
+        connections.clear();
+        client.closed(this);
+    }
+
+    /**
+     * Redirect a command to the node named in a <code>MOVED</code> or <code>ASK</code>
+     * error. Redirection may need to open a new connection so it runs on the
+     * client's executor rather than the I/O thread that received the error.
+     *
+     * @param cmd   Command to redirect.
+     * @param error Redirection error.
+     */
+    void redirect(final ClusterCommand<K, V, ?> cmd, final String error) {
+        try {
+            client.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        String[] parts = error.split(" ");
+                        int slot = Integer.parseInt(parts[1]);
+                        String node = parts[2];
+
+                        RedisAsyncConnection<K, V> connection = connection(node);
+                        if (error.startsWith("MOVED ")) {
+                            client.moved(slot, node);
+                            connection.dispatch(cmd);
+                        } else {
+                            synchronized (connection) {
+                                connection.asking();
+                                connection.dispatch(cmd);
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failed(cmd, e);
+                    }
+                }
+            });
+        } catch (RedisException e) {
+            failed(cmd, e);
+        }
+    }
+
+    private void failed(ClusterCommand<K, V, ?> cmd, RuntimeException e) {
+        CommandOutput<K, V, ?> output = cmd.getOutput();
+        if (output != null) output.setError("Redirect failed: " + e.getMessage());
+        cmd.complete();
+    }
+
+    String node(Command<K, V, ?> cmd) {
+        CommandArgs<K, V> args = cmd.getArgs();
+        byte[] key = (args != null) ? args.firstKey() : null;
+        return (key != null) ? client.getNode(SlotHash.getSlot(key)) : null;
+    }
+
+    protected synchronized RedisAsyncConnection<K, V> connection(String node) {
+        if (closed) throw new RedisException("Connection is closed");
+        if (node == null) node = client.anyNode();
+
+        RedisAsyncConnection<K, V> connection = connections.get(node);
+        if (connection == null) {
+            connection = client.client(node).connectAsync(codec);
+            connection.setTimeout(timeout, unit);
+            if (password != null) connection.auth(password);
+            connections.put(node, connection);
+        }
+
+        return connection;
+    }
+
+    protected synchronized Collection<RedisAsyncConnection<K, V>> connections() {
+        List<RedisAsyncConnection<K, V>> all = new ArrayList<RedisAsyncConnection<K, V>>();
+        for (String node : client.getNodes()) {
+            all.add(connection(node));
+        }
+        return all;
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cluster;
+
+import com.lambdaworks.redis.RedisAsyncConnection;
+import com.lambdaworks.redis.RedisException;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A batch of commands for a redis cluster. Commands dispatched on the batch
+ * are held and grouped by the node serving their slot until {@link #flush},
+ * which writes each group to its node's connection as one pipelined write.
+ * The returned futures complete individually as replies arrive and are
+ * redirected like any other cluster command.
+ *
+ * Futures must not be awaited before the batch is flushed.
+ *
+ * @author Will Glozer
+ */
+public class ClusterBatch<K, V> extends RedisAsyncConnection<K, V> {
+    private ClusterAsyncConnection<K, V> connection;
+    private Map<String, List<Command<K, V, ?>>> pending;
+
+    /**
+     * Initialize a new batch.
+     *
+     * @param connection    Cluster connection used to flush the batch.
+     * @param codec         Codec used to encode/decode keys and values.
+     * @param timeout       Maximum time to wait for a response.
+     * @param unit          Unit of time for the timeout.
+     */
+    public ClusterBatch(ClusterAsyncConnection<K, V> connection, RedisCodec<K, V> codec, long timeout, TimeUnit unit) {
+        super(new LinkedBlockingQueue<Command<K, V, ?>>(), codec, timeout, unit);
+        this.connection = connection;
+        this.pending    = new LinkedHashMap<String, List<Command<K, V, ?>>>();
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        return dispatch(new ClusterCommand<K, V, T>(connection, type, output, args));
+    }
+
+    @Override
+    public synchronized <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
+        String node = connection.node(cmd);
+        List<Command<K, V, ?>> cmds = pending.get(node);
+        if (cmds == null) {
+            cmds = new ArrayList<Command<K, V, ?>>();
+            pending.put(node, cmds);
+        }
+        cmds.add(cmd);
+        return cmd;
+    }
+
+    /**
+     * Write all pending commands, one pipelined write per node.
+     */
+    public void flush() {
+        Map<String, List<Command<K, V, ?>>> pending;
+        synchronized (this) {
+            pending = this.pending;
+            this.pending = new LinkedHashMap<String, List<Command<K, V, ?>>>();
+        }
+
+        for (Map.Entry<String, List<Command<K, V, ?>>> entry : pending.entrySet()) {
+            connection.connection(entry.getKey()).dispatch(entry.getValue());
+        }
+    }
+
+    /**
+     * Get the number of commands waiting to be flushed.
+     *
+     * @return Number of pending commands.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (List<Command<K, V, ?>> cmds : pending.values()) {
+            size += cmds.size();
+        }
+        return size;
+    }
+
+    @Override
+    public String auth(String password) {
+        throw new RedisException("AUTH is not supported in a batch");
+    }
+
+    @Override
+    public Future<String> multi() {
+        throw new RedisException("MULTI is not supported by cluster connections");
+    }
+
+    /**
+     * Flush any pending commands. The underlying cluster connection remains open.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cluster;
+
+import com.lambdaworks.redis.protocol.*;
+
+/**
+ * A command sent to a redis cluster node that, instead of completing, is
+ * redirected to another node when the reply is a <code>MOVED</code> or
+ * <code>ASK</code> error.
+ *
+ * @param <T> Command output type.
+ *
+ * @author Will Glozer
+ */
+class ClusterCommand<K, V, T> extends Command<K, V, T> {
+    static final int MAX_REDIRECTS = 5;
+
+    private ClusterAsyncConnection<K, V> connection;
+    private int redirects;
+
+    ClusterCommand(ClusterAsyncConnection<K, V> connection, CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        super(type, output, args, false);
+        this.connection = connection;
+    }
+
+    @Override
+    public void complete() {
+        CommandOutput<K, V, T> output = this.output;
+        if (output != null && output.hasError() && redirects < MAX_REDIRECTS) {
+            String error = output.getError();
+            if (error.startsWith("MOVED ") || error.startsWith("ASK ")) {
+                redirects++;
+                output.setError((String) null);
+                connection.redirect(this, error);
+                return;
+            }
+        }
+        super.complete();
+    }
+}
@@ -0,0 +1,299 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cluster;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.lambdaworks.redis.cluster.SlotHash.SLOT_COUNT;
+
+/**
+ * A <a href="http://redis.io/topics/cluster-spec">Redis Cluster</a> client. The
+ * client keeps a map of hash slots to the <code>host:port</code> of the master
+ * serving them, loaded with <code>CLUSTER SLOTS</code> from the seed nodes or any
+ * node learned since, and maintains one connection per node for each
+ * {@link ClusterAsyncConnection}. A <code>MOVED</code> redirect updates the map,
+ * and one that names a node not in the map reloads it.
+ *
+ * @author Will Glozer
+ */
+public class RedisClusterClient {
+    private List<String> seeds;
+    private ConcurrentMap<String, RedisClient> clients;
+    private volatile String[] slots;
+    private volatile Set<String> nodes;
+    private final Object moves = new Object();
+    private ConcurrentMap<Integer, String> pending;
+    private AtomicBoolean reloading;
+    private List<ClusterAsyncConnection<?, ?>> connections;
+    private ExecutorService executor;
+    private long timeout;
+    private TimeUnit unit;
+
+    /**
+     * Create a new client that discovers the cluster from the supplied seed nodes.
+     *
+     * @param seeds Seed nodes as <code>host:port</code>.
+     */
+    public RedisClusterClient(String... seeds) {
+        this.seeds       = Arrays.asList(seeds);
+        this.clients     = new ConcurrentHashMap<String, RedisClient>();
+        this.pending     = new ConcurrentHashMap<Integer, String>();
+        this.reloading   = new AtomicBoolean();
+        this.connections = new CopyOnWriteArrayList<ClusterAsyncConnection<?, ?>>();
+        this.executor    = Executors.newCachedThreadPool();
+        setDefaultTimeout(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Set the default timeout for connections created by this client.
+     *
+     * @param timeout   Default connection timeout.
+     * @param unit      Unit of time for the timeout.
+     */
+    public synchronized void setDefaultTimeout(long timeout, TimeUnit unit) {
+        this.timeout = timeout;
+        this.unit    = unit;
+        for (RedisClient client : clients.values()) {
+            client.setDefaultTimeout(timeout, unit);
+        }
+    }
+
+    /**
+     * Reload the slot map with <code>CLUSTER SLOTS</code> from the first seed or
+     * known node that responds.
+     */
+    public void reloadSlots() {
+        Set<String> nodes = new LinkedHashSet<String>(seeds);
+        synchronized (this) {
+            nodes.addAll(clients.keySet());
+        }
+
+        RedisException failure = null;
+        for (String node : nodes) {
+            try {
+                RedisConnection<String, String> connection = client(node).connect();
+                try {
+                    String[] slots = parseSlots(connection.clusterSlots(), node.substring(0, node.lastIndexOf(':')));
+                    synchronized (moves) {
+                        publish(slots);
+                    }
+                    return;
+                } finally {
+                    connection.close();
+                }
+            } catch (RedisException e) {
+                failure = e;
+            }
+        }
+
+        throw new RedisException("Unable to load cluster slots", failure);
+    }
+
+    /**
+     * Get the node currently serving a slot.
+     *
+     * @param slot  Hash slot.
+     *
+     * @return The node as <code>host:port</code>, or null if unknown.
+     */
+    public String getNode(int slot) {
+        return slots()[slot];
+    }
+
+    /**
+     * Get all nodes serving at least one slot.
+     *
+     * @return The nodes as <code>host:port</code>.
+     */
+    public Set<String> getNodes() {
+        slots();
+        return nodes;
+    }
+
+    /**
+     * Open a new synchronous cluster connection that treats keys and values
+     * as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public RedisConnection<String, String> connect() {
+        return connect(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new asynchronous cluster connection that treats keys and values
+     * as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public ClusterAsyncConnection<String, String> connectAsync() {
+        return connectAsync(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new synchronous cluster connection. The codec is shared by the
+     * connections to each node and its decode methods must be thread-safe.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> RedisConnection<K, V> connect(RedisCodec<K, V> codec) {
+        return new RedisConnection<K, V>(connectAsync(codec));
+    }
+
+    /**
+     * Open a new asynchronous cluster connection. The codec is shared by the
+     * connections to each node and its decode methods must be thread-safe.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> ClusterAsyncConnection<K, V> connectAsync(RedisCodec<K, V> codec) {
+        slots();
+        ClusterAsyncConnection<K, V> connection = new ClusterAsyncConnection<K, V>(this, codec, timeout, unit);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Shutdown this client and close all open connections. The client should be
+     * discarded after calling shutdown.
+     */
+    public void shutdown() {
+        List<RedisClient> clients;
+
+        synchronized (this) {
+            clients = new ArrayList<RedisClient>(this.clients.values());
+            this.clients.clear();
+            executor.shutdown();
+        }
+
+        for (ClusterAsyncConnection<?, ?> connection : connections) {
+            connection.close();
+        }
+        for (RedisClient client : clients) {
+            client.shutdown();
+        }
+    }
+
+    RedisClient client(String node) {
+        RedisClient client = clients.get(node);
+        if (client == null) {
+            int colon = node.lastIndexOf(':');
+            RedisClient created = new RedisClient(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+            synchronized (this) {
+                created.setDefaultTimeout(timeout, unit);
+            }
+            client = clients.putIfAbsent(node, created);
+            if (client == null) {
+                client = created;
+            } else {
+                created.shutdown();
+            }
+        }
+        return client;
+    }
+
+    String anyNode() {
+        Set<String> nodes = getNodes();
+        return nodes.isEmpty() ? seeds.get(0) : nodes.iterator().next();
+    }
+
+    /**
+     * Record that a slot has moved to another node. A node not in the slot map
+     * reloads the whole map, unless a reload is already running. Otherwise
+     * moves are queued and applied together by one copy of the slot array.
+     *
+     * @param slot  Hash slot.
+     * @param node  Node now serving the slot.
+     */
+    void moved(int slot, String node) {
+        if (node.equals(slots()[slot])) return;
+
+        if (!nodes.contains(node) && reloading.compareAndSet(false, true)) {
+            try {
+                reloadSlots();
+                if (node.equals(slots()[slot])) return;
+            } catch (RedisException e) {
+                // fall back to the single move
+            } finally {
+                reloading.set(false);
+            }
+        }
+
+        pending.put(slot, node);
+        synchronized (moves) {
+            if (pending.isEmpty()) return;
+            String[] slots = slots().clone();
+            for (Map.Entry<Integer, String> move : pending.entrySet()) {
+                slots[move.getKey()] = move.getValue();
+                pending.remove(move.getKey(), move.getValue());
+            }
+            publish(slots);
+        }
+    }
+
+    /**
+     * Run a task on the client's executor.
+     *
+     * @param task  Task to run.
+     *
+     * @throws RedisException if the client has been shut down.
+     */
+    void execute(Runnable task) {
+        try {
+            synchronized (this) {
+                if (executor.isShutdown()) throw new RejectedExecutionException();
+                executor.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            throw new RedisException("Client is shut down");
+        }
+    }
+
+    void closed(ClusterAsyncConnection<?, ?> connection) {
+        connections.remove(connection);
+    }
+
+    private String[] slots() {
+        if (slots == null) reloadSlots();
+        return slots;
+    }
+
+    private void publish(String[] slots) {
+        Set<String> nodes = new LinkedHashSet<String>();
+        for (String node : slots) {
+            if (node != null) nodes.add(node);
+        }
+        this.nodes = Collections.unmodifiableSet(nodes);
+        this.slots = slots;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String[] parseSlots(List<Object> reply, String defaultHost) {
+        String[] slots = new String[SLOT_COUNT];
+        for (Object o : reply) {
+            List<Object> range = (List<Object>) o;
+            int start = ((Long) range.get(0)).intValue();
+            int end   = ((Long) range.get(1)).intValue();
+
+            List<Object> master = (List<Object>) range.get(2);
+            String host = (String) master.get(0);
+            if (host.isEmpty()) host = defaultHost;
+            String node = host + ":" + master.get(1);
+
+            for (int slot = start; slot <= end; slot++) {
+                slots[slot] = node;
+            }
+        }
+        return slots;
+    }
+}
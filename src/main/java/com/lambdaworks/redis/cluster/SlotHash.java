@@ -0,0 +1,71 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.cluster;
+
+/**
+ * Computes the redis cluster hash slot of a key, the CRC16 (XMODEM) of the
+ * key modulo 16384. When a key contains a non-empty <code>{hash tag}</code>
+ * only the tag is hashed so related keys can be placed in the same slot.
+ *
+ * @author Will Glozer
+ */
+public class SlotHash {
+    public static final int SLOT_COUNT = 16384;
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    /**
+     * Get the hash slot of a key.
+     *
+     * @param key   Encoded key.
+     *
+     * @return The slot.
+     */
+    public static int getSlot(byte[] key) {
+        int start = 0, end = key.length;
+
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] == '{') {
+                for (int j = i + 1; j < key.length; j++) {
+                    if (key[j] == '}') {
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end   = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+
+        return crc16(key, start, end) & (SLOT_COUNT - 1);
+    }
+
+    /**
+     * Compute the CRC16 (XMODEM) checksum of a range of bytes.
+     *
+     * @param bytes Bytes to checksum.
+     * @param start Start of the range.
+     * @param end   End of the range, exclusive.
+     *
+     * @return The checksum.
+     */
+    public static int crc16(byte[] bytes, int start, int end) {
+        int crc = 0;
+        for (int i = start; i < end; i++) {
+            crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link RedisCodec} that wraps another codec and interns decoded keys, so
+ * that repeated hash field names and pub/sub channels decode to shared instances
+ * instead of a new object per occurrence.
+ *
+ * Decoded keys are held in a bounded direct-mapped cache indexed by a hash of
+ * the raw bytes, a colliding key simply replaces the previous entry. Entries are
+ * immutable and replaced whole, so concurrent decoding needs no lock and at worst
+ * misses an entry another thread just stored. Keys longer than the configured
+ * maximum length are decoded without being cached.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ *
+ * @author Will Glozer
+ */
+public class InterningCodec<K, V> extends RedisCodec<K, V> {
+    private RedisCodec<K, V> codec;
+    private int maxKeyLength;
+    private int mask;
+    private Entry<K>[] entries;
+
+    /**
+     * Initialize a new instance that interns up to 1024 keys of at most 64 bytes.
+     *
+     * @param codec Codec used to encode/decode keys and values.
+     */
+    public InterningCodec(RedisCodec<K, V> codec) {
+        this(codec, 1024, 64);
+    }
+
+    /**
+     * Initialize a new instance.
+     *
+     * @param codec         Codec used to encode/decode keys and values.
+     * @param size          Number of cache entries, rounded up to a power of two.
+     * @param maxKeyLength  Maximum length in bytes of keys to intern.
+     */
+    public InterningCodec(RedisCodec<K, V> codec, int size, int maxKeyLength) {
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.codec        = codec;
+        this.maxKeyLength = maxKeyLength;
+        this.mask         = capacity - 1;
+        this.entries      = newEntries(capacity);
+    }
+
+    @Override
+    public K decodeKey(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        if (length > maxKeyLength) {
+            return codec.decodeKey(bytes);
+        }
+
+        int offset = bytes.position();
+        int index  = hash(bytes, offset, length) & mask;
+
+        Entry<K> entry = entries[index];
+        if (entry != null && equals(entry.bytes, bytes, offset)) {
+            bytes.position(offset + length);
+            return entry.key;
+        }
+
+        byte[] copy = new byte[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = bytes.get(offset + i);
+        }
+
+        K key = codec.decodeKey(bytes);
+        entries[index] = new Entry<K>(copy, key);
+        return key;
+    }
+
+    @Override
+    public V decodeValue(ByteBuffer bytes) {
+        return codec.decodeValue(bytes);
+    }
+
+    @Override
+    public byte[] encodeKey(K key) {
+        return codec.encodeKey(key);
+    }
+
+    @Override
+    public byte[] encodeValue(V value) {
+        return codec.encodeValue(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Entry<K>[] newEntries(int capacity) {
+        return (Entry<K>[]) new Entry<?>[capacity];
+    }
+
+    private static int hash(ByteBuffer bytes, int offset, int length) {
+        int hash = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes.get(i);
+            hash *= 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] cached, ByteBuffer bytes, int offset) {
+        if (cached.length != bytes.remaining()) return false;
+        for (int i = 0; i < cached.length; i++) {
+            if (cached[i] != bytes.get(offset + i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The raw bytes of a key and the key they decode to.
+     */
+    static final class Entry<K> {
+        final byte[] bytes;
+        final K key;
+
+        Entry(byte[] bytes, K key) {
+            this.bytes = bytes;
+            this.key   = key;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.codec;
+
+import com.lambdaworks.codec.Base10;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link RedisCodec} that handles UTF-8 encoded keys and {@link Long} values.
+ * Values are encoded and decoded directly as decimal bytes without converting
+ * to and from strings. Values that are not valid integers decode to null.
+ *
+ * @author Will Glozer
+ */
+public class LongValueCodec extends RedisCodec<String, Long> {
+    private Utf8StringCodec keys;
+
+    /**
+     * Initialize a new instance.
+     */
+    public LongValueCodec() {
+        keys = new Utf8StringCodec();
+    }
+
+    @Override
+    public String decodeKey(ByteBuffer bytes) {
+        return keys.decodeKey(bytes);
+    }
+
+    @Override
+    public Long decodeValue(ByteBuffer bytes) {
+        try {
+            return Base10.decodeLong(bytes);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] encodeKey(String key) {
+        return keys.encodeKey(key);
+    }
+
+    @Override
+    public byte[] encodeValue(Long value) {
+        return Base10.encode(value);
+    }
+}
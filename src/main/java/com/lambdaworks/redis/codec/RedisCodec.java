@@ -9,7 +9,11 @@ import java.nio.ByteBuffer;
  * and values in the command output.
  *
  * The encode methods will be called by multiple threads and must be thread-safe,
- * however the decode methods will only be called by one thread.
+ * however the decode methods will only be called by one thread at a time.
+ *
+ * Decode methods must also be thread-safe when a codec is used to read
+ * {@link com.lambdaworks.redis.LazyValue lazy values} or is shared by the
+ * connections to several nodes of a sharded, cluster or master/replica client.
  *
  * @param <K> Key type.
  * @param <V> Value type.
@@ -9,23 +9,27 @@ import java.nio.charset.*;
 import static java.nio.charset.CoderResult.OVERFLOW;
 
 /**
- * A {@link RedisCodec} that handles UTF-8 encoded keys and values.
+ * A {@link RedisCodec} that handles UTF-8 encoded keys and values. Each thread
+ * decodes with its own reusable decoder and buffer.
  *
  * @author Will Glozer
  */
 public class Utf8StringCodec extends RedisCodec<String, String> {
     private Charset charset;
-    private CharsetDecoder decoder;
-    private CharBuffer chars;
+    private ThreadLocal<Decoder> decoders;
 
     /**
      * Initialize a new instance that encodes and decodes strings using
      * the UTF-8 charset;
      */
     public Utf8StringCodec() {
-        charset = Charset.forName("UTF-8");
-        decoder = charset.newDecoder();
-        chars   = CharBuffer.allocate(1024);
+        charset  = Charset.forName("UTF-8");
+        decoders = new ThreadLocal<Decoder>() {
+            @Override
+            protected Decoder initialValue() {
+                return new Decoder(charset.newDecoder());
+            }
+        };
     }
 
     @Override
@@ -49,19 +53,36 @@ public class Utf8StringCodec extends RedisCodec<String, String> {
     }
 
     private String decode(ByteBuffer bytes) {
-        chars.clear();
-        bytes.mark();
-
-        decoder.reset();
-        while (decoder.decode(bytes, chars, true) == OVERFLOW || decoder.flush(chars) == OVERFLOW) {
-            chars = CharBuffer.allocate(chars.capacity() * 2);
-            bytes.reset();
-        }
-
-        return chars.flip().toString();
+        return decoders.get().decode(bytes);
     }
 
     private byte[] encode(String string) {
         return string.getBytes(charset);
     }
+
+    /**
+     * A decoder and buffer confined to one thread.
+     */
+    static class Decoder {
+        private CharsetDecoder decoder;
+        private CharBuffer chars;
+
+        Decoder(CharsetDecoder decoder) {
+            this.decoder = decoder;
+            this.chars   = CharBuffer.allocate(1024);
+        }
+
+        String decode(ByteBuffer bytes) {
+            chars.clear();
+            bytes.mark();
+
+            decoder.reset();
+            while (decoder.decode(bytes, chars, true) == OVERFLOW || decoder.flush(chars) == OVERFLOW) {
+                chars = CharBuffer.allocate(chars.capacity() * 2);
+                bytes.reset();
+            }
+
+            return chars.flip().toString();
+        }
+    }
 }
@@ -0,0 +1,81 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.counter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A delta accumulated for one key or hash field, striped across cells so
+ * concurrent threads rarely contend on the same cache line. A counter that
+ * was idle for a flush window is retired, after which additions fail and the
+ * adder must use a new counter. Each stripe counts the additions in progress
+ * in its padding so retirement never races with a delta being added.
+ *
+ * @author Will Glozer
+ */
+class Counter<K> {
+    private static final int STRIDE = 8;
+    private static final int ADDERS = 1;
+
+    final K key;
+    final K field;
+    private final AtomicLongArray cells;
+    private final int mask;
+    private volatile boolean retired;
+
+    Counter(K key, K field, int stripes) {
+        this.key   = key;
+        this.field = field;
+        this.cells = new AtomicLongArray(stripes * STRIDE);
+        this.mask  = stripes - 1;
+    }
+
+    /**
+     * Add a delta to this counter.
+     *
+     * @param delta Delta to add.
+     *
+     * @return false if the counter has been retired.
+     */
+    boolean add(long delta) {
+        int id = (int) Thread.currentThread().getId();
+        int index = ((id * 0x9E3779B9) >>> 16 & mask) * STRIDE;
+        cells.incrementAndGet(index + ADDERS);
+        try {
+            if (retired) return false;
+            cells.addAndGet(index, delta);
+            return true;
+        } finally {
+            cells.decrementAndGet(index + ADDERS);
+        }
+    }
+
+    /**
+     * Remove and return the accumulated delta.
+     *
+     * @return The delta accumulated since the last drain.
+     */
+    long drain() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += STRIDE) {
+            sum += cells.getAndSet(i, 0);
+        }
+        return sum;
+    }
+
+    /**
+     * Retire this counter if no delta has been added since it was drained.
+     *
+     * @return true if the counter was retired.
+     */
+    boolean retire() {
+        retired = true;
+        for (int i = 0; i < cells.length(); i += STRIDE) {
+            if (cells.get(i + ADDERS) != 0 || cells.get(i) != 0) {
+                retired = false;
+                return false;
+            }
+        }
+        return true;
+    }
+}
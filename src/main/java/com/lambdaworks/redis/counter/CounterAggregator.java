@@ -0,0 +1,241 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.counter;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.output.IntegerOutput;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * Aggregates INCRBY and HINCRBY deltas per key and hash field on the client and
+ * periodically sends the sum of each as one command, all commands of a flush
+ * written as a single pipelined batch. Increments are visible to other clients
+ * only after the next flush, and are lost if the process dies before then.
+ *
+ * @author Will Glozer
+ */
+public class CounterAggregator<K, V> {
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private RedisAsyncConnection<K, V> connection;
+    private RedisCodec<K, V> codec;
+    private ConcurrentHashMap<Id, Counter<K>> counters;
+    private ScheduledExecutorService scheduler;
+    private AtomicLong flushes;
+    private AtomicLong commands;
+    private AtomicLong errors;
+
+    /**
+     * Create a new aggregator that flushes to a connection.
+     *
+     * @param connection    Connection to flush deltas to.
+     * @param codec         Codec used to encode keys.
+     * @param interval      Time between flushes.
+     * @param unit          Unit of time for the interval.
+     */
+    public CounterAggregator(RedisAsyncConnection<K, V> connection, RedisCodec<K, V> codec, long interval, TimeUnit unit) {
+        this.connection = connection;
+        this.codec      = codec;
+        this.counters   = new ConcurrentHashMap<Id, Counter<K>>(256, 0.75f, STRIPES);
+        this.flushes    = new AtomicLong();
+        this.commands   = new AtomicLong();
+        this.errors     = new AtomicLong();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lettuce-counter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                }
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Add a delta to a key, sent with INCRBY on the next flush.
+     *
+     * @param key       Key.
+     * @param amount    Delta to add.
+     */
+    public void incrby(K key, long amount) {
+        add(new Id(codec.encodeKey(key), null), key, null, amount);
+    }
+
+    /**
+     * Add a delta to a hash field, sent with HINCRBY on the next flush.
+     *
+     * @param key       Key of the hash.
+     * @param field     Field.
+     * @param amount    Delta to add.
+     */
+    public void hincrby(K key, K field, long amount) {
+        add(new Id(codec.encodeKey(key), codec.encodeKey(field)), key, field, amount);
+    }
+
+    /**
+     * Send all accumulated deltas now, as one pipelined write.
+     *
+     * @return Futures of the commands sent.
+     */
+    public synchronized List<Future<Long>> flush() {
+        List<FlushCommand> cmds = new ArrayList<FlushCommand>();
+
+        for (Map.Entry<Id, Counter<K>> entry : counters.entrySet()) {
+            Counter<K> counter = entry.getValue();
+            long delta = counter.drain();
+            if (delta != 0) {
+                cmds.add(command(entry.getKey(), counter, delta));
+            } else if (counter.retire()) {
+                counters.remove(entry.getKey(), counter);
+            }
+        }
+
+        flushes.incrementAndGet();
+        if (cmds.isEmpty()) return Collections.emptyList();
+
+        try {
+            connection.dispatch(cmds);
+            commands.addAndGet(cmds.size());
+        } catch (RuntimeException e) {
+            for (FlushCommand cmd : cmds) {
+                add(cmd.id, cmd.counter.key, cmd.counter.field, cmd.delta);
+            }
+            errors.incrementAndGet();
+        }
+
+        return new ArrayList<Future<Long>>(cmds);
+    }
+
+    /**
+     * Stop flushing periodically and flush all accumulated deltas, waiting for
+     * their replies up to the connection's timeout. The connection remains open.
+     */
+    public void close() {
+        scheduler.shutdown();
+        List<Future<Long>> futures = flush();
+        connection.awaitAll(futures.toArray(new Future<?>[futures.size()]));
+    }
+
+    /**
+     * Get the number of keys and hash fields with a live counter.
+     *
+     * @return Number of counters.
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getCommands() {
+        return commands.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public String toString() {
+        return "counters=" + size() + " flushes=" + flushes + " commands=" + commands + " errors=" + errors;
+    }
+
+    private void add(Id id, K key, K field, long amount) {
+        for (;;) {
+            Counter<K> counter = counters.get(id);
+            if (counter == null) {
+                counter = new Counter<K>(key, field, STRIPES);
+                Counter<K> existing = counters.putIfAbsent(id, counter);
+                if (existing != null) counter = existing;
+            }
+            if (counter.add(amount)) return;
+            Thread.yield();
+        }
+    }
+
+    private FlushCommand command(Id id, Counter<K> counter, long delta) {
+        CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKey(counter.key);
+        if (counter.field == null) {
+            args.add(delta);
+            return new FlushCommand(INCRBY, args, id, counter, delta);
+        }
+        args.addKey(counter.field).add(delta);
+        return new FlushCommand(HINCRBY, args, id, counter, delta);
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < 16) stripes <<= 1;
+        return stripes;
+    }
+
+    /**
+     * An INCRBY or HINCRBY of an accumulated delta that counts error replies.
+     */
+    class FlushCommand extends Command<K, V, Long> {
+        private Id id;
+        private Counter<K> counter;
+        private long delta;
+
+        FlushCommand(CommandType type, CommandArgs<K, V> args, Id id, Counter<K> counter, long delta) {
+            super(type, new IntegerOutput<K, V>(codec), args, false);
+            this.id      = id;
+            this.counter = counter;
+            this.delta   = delta;
+        }
+
+        @Override
+        public void complete() {
+            CommandOutput<K, V, Long> output = getOutput();
+            if (output != null && output.hasError()) errors.incrementAndGet();
+            super.complete();
+        }
+    }
+
+    /**
+     * The encoded key and hash field, if any, of a counter.
+     */
+    static final class Id {
+        private final byte[] key;
+        private final byte[] field;
+        private final int hash;
+
+        Id(byte[] key, byte[] field) {
+            this.key   = key;
+            this.field = field;
+            this.hash  = 31 * Arrays.hashCode(key) + Arrays.hashCode(field);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Id)) return false;
+            Id id = (Id) o;
+            return Arrays.equals(key, id.key) && Arrays.equals(field, id.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.CommandOutput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Output that discards the server's response, used to skip over replies
+ * without decoding them.
+ *
+ * @author Will Glozer
+ */
+public class DiscardOutput<K, V> extends CommandOutput<K, V, Void> {
+    public DiscardOutput(RedisCodec<K, V> codec) {
+        super(codec, null);
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        // discard
+    }
+
+    @Override
+    public void set(long integer) {
+        // discard
+    }
+
+    @Override
+    public void setError(ByteBuffer error) {
+        // discard
+    }
+}
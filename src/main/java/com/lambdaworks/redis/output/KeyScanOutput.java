@@ -0,0 +1,25 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.codec.RedisCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor and page of keys returned by SCAN.
+ *
+ * @param <K> Key type.
+ *
+ * @author Will Glozer
+ */
+public class KeyScanOutput<K, V> extends ScanOutput<K, V, K> {
+    public KeyScanOutput(RedisCodec<K, V> codec) {
+        super(codec);
+    }
+
+    @Override
+    protected void item(ByteBuffer bytes) {
+        items.add(codec.decodeKey(bytes));
+    }
+}
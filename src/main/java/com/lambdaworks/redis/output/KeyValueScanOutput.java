@@ -0,0 +1,35 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.KeyValue;
+import com.lambdaworks.redis.codec.RedisCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor and page of fields and their values returned by HSCAN.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ *
+ * @author Will Glozer
+ */
+public class KeyValueScanOutput<K, V> extends ScanOutput<K, V, KeyValue<K, V>> {
+    private K key;
+
+    public KeyValueScanOutput(RedisCodec<K, V> codec) {
+        super(codec);
+    }
+
+    @Override
+    protected void item(ByteBuffer bytes) {
+        if (key == null) {
+            key = codec.decodeKey(bytes);
+            return;
+        }
+
+        items.add(new KeyValue<K, V>(key, codec.decodeValue(bytes)));
+        key = null;
+    }
+}
@@ -0,0 +1,37 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.LazyValue;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.CommandOutput;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link List} of values output that copies the raw bytes of each value
+ * and defers decoding until the {@link LazyValue} is accessed.
+ *
+ * @param <V> Value type.
+ *
+ * @author Will Glozer
+ */
+public class LazyValueListOutput<K, V> extends CommandOutput<K, V, List<LazyValue<V>>> {
+    public LazyValueListOutput(RedisCodec<K, V> codec) {
+        super(codec, new ArrayList<LazyValue<V>>());
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        if (bytes == null) {
+            output.add(null);
+            return;
+        }
+
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        output.add(new LazyValue<V>(codec, copy));
+    }
+}
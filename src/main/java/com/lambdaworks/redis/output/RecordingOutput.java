@@ -0,0 +1,80 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.protocol.CommandOutput;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output that records a reply so it can later be replayed into one or more
+ * real outputs, allowing a reply to be decoded once for several commands or
+ * several attempts of one read to be in flight without decoding into the same
+ * output concurrently.
+ *
+ * @author Will Glozer
+ */
+public class RecordingOutput<K, V> extends CommandOutput<K, V, Void> {
+    private static final Object NULL = new Object();
+
+    private List<Object> events;
+
+    public RecordingOutput() {
+        super(null, null);
+        this.events = new ArrayList<Object>();
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        if (bytes == null) {
+            events.add(NULL);
+        } else {
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(copy);
+            events.add(copy);
+        }
+    }
+
+    @Override
+    public void set(long integer) {
+        events.add(integer);
+    }
+
+    @Override
+    public void setError(ByteBuffer error) {
+        events.add(decodeAscii(error));
+    }
+
+    @Override
+    public void setError(String error) {
+        events.add(error);
+    }
+
+    @Override
+    public void complete(int depth) {
+        events.add(depth);
+    }
+
+    /**
+     * Replay the recorded reply into another output.
+     *
+     * @param output    Output to replay into.
+     */
+    public void replay(CommandOutput<K, V, ?> output) {
+        for (Object event : events) {
+            if (event == NULL) {
+                output.set((ByteBuffer) null);
+            } else if (event instanceof byte[]) {
+                output.set(ByteBuffer.wrap((byte[]) event));
+            } else if (event instanceof Long) {
+                output.set((Long) event);
+            } else if (event instanceof String) {
+                output.setError((String) event);
+            } else {
+                output.complete((Integer) event);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.ScanCursor;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.CommandOutput;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Cursor and page of elements returned by a SCAN family command. Concrete
+ * outputs decode the elements following the cursor.
+ *
+ * @param <T> Element type.
+ *
+ * @author Will Glozer
+ */
+public abstract class ScanOutput<K, V, T> extends CommandOutput<K, V, ScanCursor<T>> {
+    protected List<T> items;
+
+    public ScanOutput(RedisCodec<K, V> codec) {
+        super(codec, null);
+        this.items = new ArrayList<T>();
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        if (output == null) {
+            output = new ScanCursor<T>(decodeAscii(bytes), items);
+            return;
+        }
+        item(bytes);
+    }
+
+    /**
+     * Decode the next element of the page.
+     *
+     * @param bytes Element bytes.
+     */
+    protected abstract void item(ByteBuffer bytes);
+}
@@ -0,0 +1,35 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.ScoredValue;
+import com.lambdaworks.redis.codec.RedisCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor and page of values and their scores returned by ZSCAN.
+ *
+ * @param <V> Value type.
+ *
+ * @author Will Glozer
+ */
+public class ScoredValueScanOutput<K, V> extends ScanOutput<K, V, ScoredValue<V>> {
+    private V value;
+
+    public ScoredValueScanOutput(RedisCodec<K, V> codec) {
+        super(codec);
+    }
+
+    @Override
+    protected void item(ByteBuffer bytes) {
+        if (value == null) {
+            value = codec.decodeValue(bytes);
+            return;
+        }
+
+        double score = Double.parseDouble(decodeAscii(bytes));
+        items.add(new ScoredValue<V>(score, value));
+        value = null;
+    }
+}
@@ -0,0 +1,25 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.output;
+
+import com.lambdaworks.redis.codec.RedisCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor and page of values returned by SSCAN.
+ *
+ * @param <V> Value type.
+ *
+ * @author Will Glozer
+ */
+public class ValueScanOutput<K, V> extends ScanOutput<K, V, V> {
+    public ValueScanOutput(RedisCodec<K, V> codec) {
+        super(codec);
+    }
+
+    @Override
+    protected void item(ByteBuffer bytes) {
+        items.add(codec.decodeValue(bytes));
+    }
+}
@@ -2,6 +2,7 @@
 
 package com.lambdaworks.redis.protocol;
 
+import com.lambdaworks.codec.Base10;
 import com.lambdaworks.redis.RedisCommandInterruptedException;
 import org.jboss.netty.buffer.ChannelBuffer;
 
@@ -133,6 +134,15 @@ public class Command<K, V, T> implements Future<T> {
         }
     }
 
+    /**
+     * Get the arguments of this command.
+     *
+     * @return The command arguments, or null.
+     */
+    public CommandArgs<K, V> getArgs() {
+        return args;
+    }
+
     /**
      * Get the object that holds this command's output.
      *
@@ -156,12 +166,16 @@ public class Command<K, V, T> implements Future<T> {
      * @param buf Buffer to write to.
      */
     void encode(ChannelBuffer buf) {
-        buf.writeByte('*');
-        writeInt(buf, 1 + (args != null ? args.count() : 0));
-        buf.writeBytes(CRLF);
-        buf.writeByte('$');
-        writeInt(buf, type.bytes.length);
-        buf.writeBytes(CRLF);
+        int count = 1 + (args != null ? args.count() : 0);
+        byte[] header = Headers.multi(count);
+        if (header != null) {
+            buf.writeBytes(header);
+        } else {
+            buf.writeByte('*');
+            writeInt(buf, count);
+            buf.writeBytes(CRLF);
+        }
+        buf.writeBytes(Headers.bulk(type.bytes.length));
         buf.writeBytes(type.bytes);
         buf.writeBytes(CRLF);
         if (args != null) {
@@ -176,20 +190,20 @@ public class Command<K, V, T> implements Future<T> {
      * @param value Value to write.
      */
     protected static void writeInt(ChannelBuffer buf, int value) {
-        if (value < 10) {
-            buf.writeByte('0' + value);
-            return;
-        }
+        int length = Base10.length(value);
+        int index  = buf.writerIndex();
 
-        StringBuilder sb = new StringBuilder(8);
-        while (value > 0) {
-            int digit = value % 10;
-            sb.append((char) ('0' + digit));
-            value /= 10;
-        }
+        buf.ensureWritableBytes(length);
 
-        for (int i = sb.length() - 1; i >= 0; i--) {
-            buf.writeByte(sb.charAt(i));
+        if (buf.hasArray()) {
+            Base10.write(buf.array(), buf.arrayOffset() + index, value);
+        } else {
+            for (int i = index + length - 1; i >= index; i--) {
+                buf.setByte(i, '0' + value % 10);
+                value /= 10;
+            }
         }
+
+        buf.writerIndex(index + length);
     }
 }
@@ -2,11 +2,11 @@
 
 package com.lambdaworks.redis.protocol;
 
+import com.lambdaworks.codec.Base10;
 import com.lambdaworks.redis.codec.RedisCodec;
 
-import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
-import java.util.Map;
+import java.util.*;
 
 import static java.lang.Math.max;
 
@@ -21,6 +21,8 @@ public class CommandArgs<K, V> {
     private RedisCodec<K, V> codec;
     private ByteBuffer buffer;
     private int count;
+    private byte[] firstKey;
+    private List<byte[]> keys;
 
     public CommandArgs(RedisCodec<K, V> codec) {
         this.codec  = codec;
@@ -36,8 +38,22 @@ public class CommandArgs<K, V> {
         return count;
     }
 
+    public byte[] firstKey() {
+        return firstKey;
+    }
+
+    /**
+     * Get all encoded keys in the order they were added.
+     *
+     * @return The keys.
+     */
+    public List<byte[]> keys() {
+        if (keys != null) return keys;
+        return firstKey != null ? Collections.singletonList(firstKey) : Collections.<byte[]>emptyList();
+    }
+
     public CommandArgs<K, V> addKey(K key) {
-        return write(codec.encodeKey(key));
+        return writeKey(codec.encodeKey(key));
     }
 
     public CommandArgs<K, V> addKeys(K... keys) {
@@ -64,7 +80,7 @@ public class CommandArgs<K, V> {
         }
 
         for (Map.Entry<K, V> entry : map.entrySet()) {
-            write(codec.encodeKey(entry.getKey()));
+            writeKey(codec.encodeKey(entry.getKey()));
             write(codec.encodeValue(entry.getValue()));
         }
 
@@ -76,11 +92,35 @@ public class CommandArgs<K, V> {
     }
 
     public CommandArgs<K, V> add(long n) {
-        return write(Long.toString(n));
+        int length = Base10.length(n);
+        reserve(length + 16);
+
+        header(length);
+        int offset = buffer.arrayOffset();
+        buffer.position(Base10.write(buffer.array(), offset + buffer.position(), n) - offset);
+        buffer.put(CRLF);
+
+        count++;
+        return this;
     }
 
     public CommandArgs<K, V> add(double n) {
-        return write(Double.toString(n));
+        int scale = Base10.scale(n);
+        if (scale < 0) {
+            if (Double.isInfinite(n)) return write(n > 0 ? "+inf" : "-inf");
+            return write(Double.toString(n));
+        }
+
+        int length = Base10.length(n, scale);
+        reserve(length + 16);
+
+        header(length);
+        int offset = buffer.arrayOffset();
+        buffer.position(Base10.write(buffer.array(), offset + buffer.position(), n, scale) - offset);
+        buffer.put(CRLF);
+
+        count++;
+        return this;
     }
 
     public CommandArgs<K, V> add(byte[] value) {
@@ -95,27 +135,25 @@ public class CommandArgs<K, V> {
         return write(type.bytes);
     }
 
-    private CommandArgs<K, V> write(byte[] arg) {
-        buffer.mark();
-
-        if (buffer.remaining() < arg.length) {
-            int estimate = buffer.remaining() + arg.length + 10;
-            realloc(max(buffer.capacity() * 2, estimate));
-        }
-
-        while (true) {
-            try {
-                buffer.put((byte) '$');
-                write(arg.length);
-                buffer.put(CRLF);
-                buffer.put(arg);
-                buffer.put(CRLF);
-                break;
-            } catch (BufferOverflowException e) {
-                buffer.reset();
-                realloc(buffer.capacity() * 2);
+    private CommandArgs<K, V> writeKey(byte[] key) {
+        if (firstKey == null) {
+            firstKey = key;
+        } else {
+            if (keys == null) {
+                keys = new ArrayList<byte[]>();
+                keys.add(firstKey);
             }
+            keys.add(key);
         }
+        return write(key);
+    }
+
+    private CommandArgs<K, V> write(byte[] arg) {
+        reserve(arg.length + 16);
+
+        header(arg.length);
+        buffer.put(arg);
+        buffer.put(CRLF);
 
         count++;
         return this;
@@ -123,49 +161,34 @@ public class CommandArgs<K, V> {
 
     private CommandArgs<K, V> write(String arg) {
         int length = arg.length();
+        reserve(length + 16);
 
-        buffer.mark();
-
-        if (buffer.remaining() < length) {
-            int estimate = buffer.remaining() + length + 10;
-            realloc(max(buffer.capacity() * 2, estimate));
-        }
-
-        while (true) {
-            try {
-                buffer.put((byte) '$');
-                write(length);
-                buffer.put(CRLF);
-                for (int i = 0; i < length; i++) {
-                    buffer.put((byte) arg.charAt(i));
-                }
-                buffer.put(CRLF);
-                break;
-            } catch (BufferOverflowException e) {
-                buffer.reset();
-                realloc(buffer.capacity() * 2);
-            }
+        header(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) arg.charAt(i));
         }
+        buffer.put(CRLF);
 
         count++;
         return this;
     }
 
-    private void write(long value) {
-        if (value < 10) {
-            buffer.put((byte) ('0' + value));
+    private void header(int length) {
+        byte[] header = Headers.bulk(length);
+        if (header != null) {
+            buffer.put(header);
             return;
         }
 
-        StringBuilder sb = new StringBuilder(8);
-        while (value > 0) {
-            long digit = value % 10;
-            sb.append((char) ('0' + digit));
-            value /= 10;
-        }
+        buffer.put((byte) '$');
+        int offset = buffer.arrayOffset();
+        buffer.position(Base10.write(buffer.array(), offset + buffer.position(), length) - offset);
+        buffer.put(CRLF);
+    }
 
-        for (int i = sb.length() - 1; i >= 0; i--) {
-            buffer.put((byte) sb.charAt(i));
+    private void reserve(int length) {
+        if (buffer.remaining() < length) {
+            realloc(max(buffer.capacity() * 2, buffer.position() + length));
         }
     }
 
@@ -2,15 +2,19 @@
 
 package com.lambdaworks.redis.protocol;
 
+import com.lambdaworks.redis.output.DiscardOutput;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
 
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 
 /**
  * A netty {@link ChannelHandler} responsible for writing redis commands and
- * reading responses from the server.
+ * reading responses from the server. A {@link Collection} of commands written
+ * to the channel is encoded into a single buffer and flushed together.
+ * Replies to cancelled commands are read and discarded.
  *
  * @author Will Glozer
  */
@@ -18,6 +22,7 @@ public class CommandHandler<K, V> extends SimpleChannelHandler {
     protected BlockingQueue<Command<K, V, ?>> queue;
     protected ChannelBuffer buffer;
     protected RedisStateMachine<K, V> rsm;
+    protected DiscardOutput<K, V> discard = new DiscardOutput<K, V>(null);
 
     /**
      * Initialize a new instance that handles commands from the supplied queue.
@@ -36,10 +41,16 @@ public class CommandHandler<K, V> extends SimpleChannelHandler {
 
     @Override
     public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-        Command<?, ?, ?> cmd = (Command<?, ?, ?>) e.getMessage();
+        Object message = e.getMessage();
         Channel channel = ctx.getChannel();
         ChannelBuffer buf = ChannelBuffers.dynamicBuffer(channel.getConfig().getBufferFactory());
-        cmd.encode(buf);
+        if (message instanceof Collection) {
+            for (Object cmd : (Collection<?>) message) {
+                ((Command<?, ?, ?>) cmd).encode(buf);
+            }
+        } else {
+            ((Command<?, ?, ?>) message).encode(buf);
+        }
         Channels.write(ctx, e.getFuture(), buf);
     }
 
@@ -55,7 +66,9 @@ public class CommandHandler<K, V> extends SimpleChannelHandler {
     }
 
     protected void decode(ChannelHandlerContext ctx, ChannelBuffer buffer) throws InterruptedException {
-        while(!queue.isEmpty() && rsm.decode(buffer, queue.peek().getOutput())) {
+        while (!queue.isEmpty()) {
+            CommandOutput<K, V, ?> output = queue.peek().getOutput();
+            if (!rsm.decode(buffer, output != null ? output : discard)) break;
             Command<K, V, ?> cmd = queue.take();
             cmd.complete();
         }
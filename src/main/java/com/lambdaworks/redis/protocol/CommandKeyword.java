@@ -8,10 +8,11 @@ package com.lambdaworks.redis.protocol;
  * @author Will Glozer
  */
 public enum CommandKeyword {
-    AFTER, AGGREGATE, ALPHA, AND, ASC, BEFORE, BY, COUNT, DESC, ENCODING, FLUSH,
-    GETNAME, IDLETIME, KILL, LEN, LIMIT, LIST, LOAD, MAX, MIN, NO, NOSAVE, NOT,
-    ONE, OR, REFCOUNT, RESET, RESETSTAT, SETNAME, STORE, SUM, WEIGHTS,
-    WITHSCORES, XOR;
+    ADDSLOTS, AFTER, AGGREGATE, ALPHA, AND, ASC, BEFORE, BY, COUNT, DESC,
+    ENCODING, FLUSH, GETNAME, IDLETIME, IMPORTING, KILL, LEN, LIMIT, LIST, LOAD,
+    MATCH, MAX, MEET, MIGRATING, MIN, MYID, NO, NODE, NOSAVE, NOT, ONE, OR, REFCOUNT,
+    RESET, RESETSTAT, SETNAME, SETSLOT, SLOTS, STORE, SUM, WEIGHTS, WITHSCORES,
+    XOR;
 
     public byte[] bytes;
 
@@ -2,6 +2,8 @@
 
 package com.lambdaworks.redis.protocol;
 
+import java.util.EnumSet;
+
 /**
  * Redis commands.
  *
@@ -18,15 +20,24 @@ public enum CommandType {
     FLUSHDB, INFO, LASTSAVE, MONITOR, SAVE, SHUTDOWN, SLAVEOF,
     SLOWLOG, SYNC,
 
+    // Cluster
+
+    ASKING, CLUSTER,
+
+    // Sentinel
+
+    SENTINEL,
+
     // Keys
 
     DEL, DUMP, EXISTS, EXPIRE, EXPIREAT, KEYS, MIGRATE, MOVE, OBJECT, PERSIST,
-    PEXPIRE, PEXPIREAT, PTTL, RANDOMKEY, RENAME, RENAMENX, RESTORE, TTL, TYPE,
+    PEXPIRE, PEXPIREAT, PTTL, RANDOMKEY, RENAME, RENAMENX, RESTORE, SCAN, TTL,
+    TYPE,
 
     // String
 
-    APPEND, GET, GETRANGE, GETSET, MGET, MSET, MSETNX, SET, SETEX, SETNX,
-    SETRANGE, STRLEN,
+    APPEND, GET, GETRANGE, GETSET, MGET, MSET, MSETNX, PSETEX, SET, SETEX,
+    SETNX, SETRANGE, STRLEN,
 
     // Numeric
 
@@ -41,7 +52,7 @@ public enum CommandType {
     // Hash
 
     HDEL, HEXISTS, HGET, HGETALL, HINCRBY, HINCRBYFLOAT, HKEYS, HLEN,
-    HMGET, HMSET, HSET, HSETNX, HVALS,
+    HMGET, HMSET, HSCAN, HSET, HSETNX, HVALS,
 
     // Transaction
 
@@ -54,13 +65,13 @@ public enum CommandType {
     // Sets
 
     SADD, SCARD, SDIFF, SDIFFSTORE, SINTER, SINTERSTORE, SISMEMBER,
-    SMEMBERS, SMOVE, SPOP, SRANDMEMBER, SREM, SUNION, SUNIONSTORE,
+    SMEMBERS, SMOVE, SPOP, SRANDMEMBER, SREM, SSCAN, SUNION, SUNIONSTORE,
 
     // Sorted Set
 
     ZADD, ZCARD, ZCOUNT, ZINCRBY, ZINTERSTORE, ZRANGE, ZRANGEBYSCORE,
     ZRANK, ZREM, ZREMRANGEBYRANK, ZREMRANGEBYSCORE, ZREVRANGE,
-    ZREVRANGEBYSCORE, ZREVRANK, ZSCORE, ZUNIONSTORE,
+    ZREVRANGEBYSCORE, ZREVRANK, ZSCAN, ZSCORE, ZUNIONSTORE,
 
     // Scripting
 
@@ -70,9 +81,39 @@ public enum CommandType {
 
     BITCOUNT, BITOP, GETBIT, SETBIT;
 
+    private static final EnumSet<CommandType> READ_ONLY = EnumSet.of(
+        // Keys
+        DUMP, EXISTS, KEYS, OBJECT, PTTL, RANDOMKEY, TTL, TYPE,
+        // String
+        GET, GETRANGE, MGET, STRLEN,
+        // List
+        LINDEX, LLEN, LRANGE,
+        // Hash
+        HEXISTS, HGET, HGETALL, HKEYS, HLEN, HMGET, HVALS,
+        // Sets
+        SCARD, SDIFF, SINTER, SISMEMBER, SMEMBERS, SRANDMEMBER, SUNION,
+        // Sorted Set
+        ZCARD, ZCOUNT, ZRANGE, ZRANGEBYSCORE, ZRANK, ZREVRANGE,
+        ZREVRANGEBYSCORE, ZREVRANK, ZSCORE,
+        // Bits
+        BITCOUNT, GETBIT
+    );
+
     public byte[] bytes;
 
     private CommandType() {
         bytes = name().getBytes(Charsets.ASCII);
     }
+
+    /**
+     * Check if this command only reads data, and so may be sent to a replica.
+     * Commands that may write depending on their arguments, such as SORT with
+     * STORE, are not read-only. The SCAN family is not read-only either, since
+     * a cursor is only valid on the server that returned it.
+     *
+     * @return true if the command is read-only.
+     */
+    public boolean isReadOnly() {
+        return READ_ONLY.contains(this);
+    }
 }
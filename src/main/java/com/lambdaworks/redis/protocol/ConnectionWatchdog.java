@@ -8,22 +8,37 @@ import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.util.*;
 
-import java.net.SocketAddress;
+import java.net.InetSocketAddress;
 import java.util.concurrent.TimeUnit;
 
 /**
  * A netty {@link ChannelHandler} responsible for monitoring the channel and
- * reconnecting when the connection is lost.
+ * reconnecting when the connection is lost. Each attempt re-resolves the
+ * endpoint, and the watchdog moves on to the next of its {@link Endpoints}
+ * when an attempt fails. The delay before each attempt, and when to give up,
+ * is decided by a {@link ReconnectStrategy}.
  *
  * @author Will Glozer
  */
 public class ConnectionWatchdog extends SimpleChannelUpstreamHandler implements TimerTask {
+    /**
+     * Default strategy, exponential backoff with full jitter from 4 to 512 ms.
+     */
+    public static final ReconnectStrategy DEFAULT_STRATEGY =
+            new ExponentialBackoff(4, 512, TimeUnit.MILLISECONDS, 0, true);
+
     private ClientBootstrap bootstrap;
+    private Endpoints endpoints;
+    private int index;
+    private boolean connected;
     private Channel channel;
     private ChannelGroup channels;
     private Timer timer;
-    private boolean reconnect;
+    private ReconnectStrategy strategy;
+    private ReconnectMetrics metrics;
+    private volatile boolean reconnect;
     private int attempts;
+    private long disconnected;
 
     /**
      * Create a new watchdog that adds to new connections to the supplied {@link ChannelGroup}
@@ -34,29 +49,91 @@ public class ConnectionWatchdog extends SimpleChannelUpstreamHandler implements
      * @param timer     Timer used for delayed reconnect.
      */
     public ConnectionWatchdog(ClientBootstrap bootstrap, ChannelGroup channels, Timer timer) {
+        this(bootstrap, endpoints(bootstrap), 0, channels, timer);
+    }
+
+    /**
+     * Create a new watchdog that reconnects to the supplied endpoints, starting
+     * with the endpoint at index.
+     *
+     * @param bootstrap Configuration for new channels.
+     * @param endpoints Endpoints to connect to.
+     * @param index     Index of the endpoint connected to first.
+     * @param channels  ChannelGroup to add new channels to.
+     * @param timer     Timer used for delayed reconnect.
+     */
+    public ConnectionWatchdog(ClientBootstrap bootstrap, Endpoints endpoints, int index, ChannelGroup channels, Timer timer) {
         this.bootstrap = bootstrap;
+        this.endpoints = endpoints;
+        this.index     = index;
         this.channels  = channels;
         this.timer     = timer;
+        this.strategy  = DEFAULT_STRATEGY;
+        this.metrics   = new ReconnectMetrics();
     }
 
     public void setReconnect(boolean reconnect) {
         this.reconnect = reconnect;
     }
 
+    /**
+     * Check if the watchdog will re-establish the connection when it is lost,
+     * which is false once closed or the {@link ReconnectStrategy} gave up.
+     *
+     * @return true if reconnecting.
+     */
+    public boolean isReconnect() {
+        return reconnect;
+    }
+
+    public void setStrategy(ReconnectStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public void setMetrics(ReconnectMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         channel = ctx.getChannel();
         channels.add(channel);
+        connected = true;
         attempts = 0;
+
+        if (disconnected != 0) {
+            CommandHandler<?, ?> handler = ctx.getPipeline().get(CommandHandler.class);
+            int pending = 0;
+            for (Command<?, ?, ?> cmd : handler.queue) {
+                if (!cmd.isCancelled()) pending++;
+            }
+            metrics.reconnected(System.nanoTime() - disconnected, pending);
+            disconnected = 0;
+        }
+
         ctx.sendUpstream(e);
     }
 
     @Override
     public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         if (reconnect) {
-            if (attempts < 8) attempts++;
-            int timeout = 2 << attempts;
-            timer.newTimeout(this, timeout, TimeUnit.MILLISECONDS);
+            if (connected) {
+                disconnected = System.nanoTime();
+            } else {
+                metrics.failed();
+            }
+        }
+
+        if (!connected) index++;
+        connected = false;
+
+        if (reconnect) {
+            long delay = strategy.delay(++attempts);
+            if (delay >= 0) {
+                timer.newTimeout(this, delay, TimeUnit.MILLISECONDS);
+            } else {
+                reconnect = false;
+            }
         }
         ctx.sendUpstream(e);
     }
@@ -67,9 +144,9 @@ public class ConnectionWatchdog extends SimpleChannelUpstreamHandler implements
     }
 
     /**
-     * Reconnect to the remote address that the closed channel was connected to.
-     * This creates a new {@link ChannelPipeline} with the same handler instances
-     * contained in the old channel's pipeline.
+     * Reconnect to the endpoint that the closed channel was connected to, or the
+     * next endpoint if the last attempt failed. This creates a new {@link ChannelPipeline}
+     * with the same handler instances contained in the old channel's pipeline.
      *
      * @param timeout Timer task handle.
      *
@@ -84,6 +161,11 @@ public class ConnectionWatchdog extends SimpleChannelUpstreamHandler implements
 
         Channel c = bootstrap.getFactory().newChannel(pipeline);
         c.getConfig().setOptions(bootstrap.getOptions());
-        c.connect((SocketAddress) bootstrap.getOption("remoteAddress"));
+        c.connect(endpoints.resolve(index));
+    }
+
+    private static Endpoints endpoints(ClientBootstrap bootstrap) {
+        InetSocketAddress addr = (InetSocketAddress) bootstrap.getOption("remoteAddress");
+        return new Endpoints(addr.getHostName(), addr.getPort());
     }
 }
@@ -0,0 +1,91 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+
+/**
+ * An ordered list of redis server endpoints. Hostnames are kept unresolved and
+ * looked up again on every {@link #resolve resolution}, so a server replaced
+ * behind a DNS name is found by the next connection attempt. Note that the JVM
+ * caches successful lookups for <code>networkaddress.cache.ttl</code> seconds.
+ *
+ * @author Will Glozer
+ */
+public class Endpoints {
+    private volatile List<InetSocketAddress> addresses;
+
+    /**
+     * Create a new list of endpoints.
+     *
+     * @param endpoints Endpoints as <code>host:port</code>, or <code>host</code> for
+     *                  the default port.
+     */
+    public Endpoints(String... endpoints) {
+        if (endpoints.length == 0) throw new IllegalArgumentException("No endpoints");
+        List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>(endpoints.length);
+        for (String endpoint : endpoints) {
+            addresses.add(parse(endpoint));
+        }
+        this.addresses = Collections.unmodifiableList(addresses);
+    }
+
+    /**
+     * Create a new list holding a single endpoint.
+     *
+     * @param host  Server hostname.
+     * @param port  Server port.
+     */
+    public Endpoints(String host, int port) {
+        set(host, port);
+    }
+
+    /**
+     * Replace all endpoints with a single endpoint.
+     *
+     * @param host  Server hostname.
+     * @param port  Server port.
+     */
+    public void set(String host, int port) {
+        addresses = Collections.singletonList(InetSocketAddress.createUnresolved(host, port));
+    }
+
+    /**
+     * Get the number of endpoints.
+     *
+     * @return Number of endpoints.
+     */
+    public int size() {
+        return addresses.size();
+    }
+
+    /**
+     * Resolve an endpoint, looking up its hostname again. Indexes wrap around
+     * so callers may rotate through the endpoints with an increasing index.
+     *
+     * @param index Index of the endpoint.
+     *
+     * @return The resolved address, which is unresolved if the lookup failed.
+     */
+    public InetSocketAddress resolve(int index) {
+        List<InetSocketAddress> addresses = this.addresses;
+        InetSocketAddress endpoint = addresses.get((index & Integer.MAX_VALUE) % addresses.size());
+        return new InetSocketAddress(endpoint.getHostName(), endpoint.getPort());
+    }
+
+    @Override
+    public String toString() {
+        return addresses.toString();
+    }
+
+    private static InetSocketAddress parse(String endpoint) {
+        int colon = endpoint.lastIndexOf(':');
+        if (colon == -1 || endpoint.indexOf(':') != colon && !endpoint.startsWith("[")) {
+            return InetSocketAddress.createUnresolved(endpoint, 6379);
+        }
+        String host = endpoint.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) host = host.substring(1, host.length() - 1);
+        return InetSocketAddress.createUnresolved(host, Integer.parseInt(endpoint.substring(colon + 1)));
+    }
+}
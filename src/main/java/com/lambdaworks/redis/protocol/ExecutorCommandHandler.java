@@ -0,0 +1,135 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import com.lambdaworks.redis.output.DiscardOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.*;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * A {@link CommandHandler} that only frames responses on the netty I/O thread,
+ * copying the raw bytes of each reply and handing them to an {@link Executor}
+ * which decodes the output and completes the {@link Command}.
+ *
+ * Replies are decoded one at a time in the order they were received, so commands
+ * on one connection complete in order and the codec's decode methods are never
+ * called concurrently. The executor may be shared by many connections.
+ *
+ * @author Will Glozer
+ */
+public class ExecutorCommandHandler<K, V> extends CommandHandler<K, V> {
+    private Executor executor;
+    private DiscardOutput<K, V> frame;
+    private RedisStateMachine<K, V> decoder;
+    private Queue<Runnable> tasks;
+    private boolean running;
+    private int start;
+
+    /**
+     * Initialize a new instance that handles commands from the supplied queue.
+     *
+     * @param queue     The command queue.
+     * @param executor  Executor that decodes replies.
+     */
+    public ExecutorCommandHandler(BlockingQueue<Command<K, V, ?>> queue, Executor executor) {
+        super(queue);
+        this.executor = executor;
+        this.frame    = new DiscardOutput<K, V>(null);
+        this.decoder  = new RedisStateMachine<K, V>();
+        this.tasks    = new LinkedList<Runnable>();
+    }
+
+    @Override
+    public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        super.channelOpen(ctx, e);
+        start = 0;
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        ChannelBuffer input = (ChannelBuffer) e.getMessage();
+        if (!input.readable()) return;
+
+        int framed = buffer.readerIndex() - start;
+        buffer.readerIndex(start);
+        buffer.discardReadBytes();
+        buffer.readerIndex(framed);
+        start = 0;
+
+        buffer.writeBytes(input);
+
+        decode(ctx, buffer);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ChannelBuffer buffer) throws InterruptedException {
+        while (!queue.isEmpty() && rsm.decode(buffer, frame)) {
+            Command<K, V, ?> cmd = queue.take();
+            int end = buffer.readerIndex();
+            if (cmd.isCancelled()) {
+                cmd.complete();
+            } else {
+                execute(new Decode(cmd, buffer.copy(start, end - start)));
+            }
+            start = end;
+        }
+    }
+
+    private void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (running) return;
+            running = true;
+        }
+
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            drain.run();
+        }
+    }
+
+    private Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            for (;;) {
+                Runnable task;
+                synchronized (tasks) {
+                    if ((task = tasks.poll()) == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+    };
+
+    private class Decode implements Runnable {
+        private Command<K, V, ?> cmd;
+        private ChannelBuffer reply;
+
+        Decode(Command<K, V, ?> cmd, ChannelBuffer reply) {
+            this.cmd   = cmd;
+            this.reply = reply;
+        }
+
+        @Override
+        public void run() {
+            CommandOutput<K, V, ?> output = cmd.getOutput();
+            if (output != null) {
+                try {
+                    decoder.decode(reply, output);
+                } catch (RuntimeException e) {
+                    decoder = new RedisStateMachine<K, V>();
+                    output.setError(e.toString());
+                }
+            }
+            cmd.complete();
+        }
+    }
+}
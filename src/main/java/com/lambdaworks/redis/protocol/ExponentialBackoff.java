@@ -0,0 +1,53 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReconnectStrategy} that doubles the delay after each attempt, up to
+ * a maximum delay. With full jitter each delay is chosen uniformly between zero
+ * and the exponential delay, so that many clients disconnected at once do not
+ * reconnect in synchronized waves.
+ *
+ * @author Will Glozer
+ */
+public class ExponentialBackoff implements ReconnectStrategy {
+    private long base;
+    private long max;
+    private int maxAttempts;
+    private boolean jitter;
+    private Random random;
+
+    /**
+     * Create a new strategy.
+     *
+     * @param base          Delay before the first attempt.
+     * @param max           Maximum delay.
+     * @param unit          Unit of time for the delays.
+     * @param maxAttempts   Maximum number of attempts, or 0 for no limit.
+     * @param jitter        Choose each delay at random up to the exponential delay.
+     */
+    public ExponentialBackoff(long base, long max, TimeUnit unit, int maxAttempts, boolean jitter) {
+        this.base        = Math.max(unit.toMillis(base), 1);
+        this.max         = unit.toMillis(max);
+        this.maxAttempts = maxAttempts;
+        this.jitter      = jitter;
+        this.random      = new Random();
+    }
+
+    @Override
+    public long delay(int attempt) {
+        if (maxAttempts > 0 && attempt > maxAttempts) return -1;
+
+        int shift = attempt - 1;
+        long delay = (shift < 62 && base <= max >> shift) ? base << shift : max;
+
+        if (jitter) {
+            delay = (long) (random.nextDouble() * (delay + 1));
+        }
+
+        return delay;
+    }
+}
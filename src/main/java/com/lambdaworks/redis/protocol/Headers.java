@@ -0,0 +1,54 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import com.lambdaworks.codec.Base10;
+
+/**
+ * Pre-encoded length headers of the <a href="http://redis.io/topics/protocol">
+ * Unified Request Protocol</a>, such as <code>$3\r\n</code>, for the lengths
+ * that occur in nearly every command.
+ *
+ * @author Will Glozer
+ */
+class Headers {
+    static final int MAX_CACHED = 512;
+
+    private static final byte[][] BULK  = cache('$');
+    private static final byte[][] MULTI = cache('*');
+
+    /**
+     * Get the bulk length header for the supplied length.
+     *
+     * @param length    Length of the bulk argument.
+     *
+     * @return Encoded header, or null if not cached.
+     */
+    static byte[] bulk(int length) {
+        return (length <= MAX_CACHED) ? BULK[length] : null;
+    }
+
+    /**
+     * Get the multi-bulk count header for the supplied count.
+     *
+     * @param count Number of arguments.
+     *
+     * @return Encoded header, or null if not cached.
+     */
+    static byte[] multi(int count) {
+        return (count <= MAX_CACHED) ? MULTI[count] : null;
+    }
+
+    private static byte[][] cache(char type) {
+        byte[][] headers = new byte[MAX_CACHED + 1][];
+        for (int i = 0; i < headers.length; i++) {
+            byte[] header = new byte[Base10.length(i) + 3];
+            header[0] = (byte) type;
+            int end = Base10.write(header, 1, i);
+            header[end]     = '\r';
+            header[end + 1] = '\n';
+            headers[i] = header;
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing how connections recover after being lost: the number of
+ * reconnections and failed attempts, the time from losing a connection to
+ * re-establishing it, and the number of pending commands resent afterwards.
+ *
+ * @author Will Glozer
+ */
+public class ReconnectMetrics {
+    private AtomicLong reconnects     = new AtomicLong();
+    private AtomicLong failedAttempts = new AtomicLong();
+    private AtomicLong replayed       = new AtomicLong();
+    private AtomicLong totalTime      = new AtomicLong();
+    private AtomicLong maxTime        = new AtomicLong();
+    private volatile long lastTime;
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.get();
+    }
+
+    /**
+     * Get the number of pending commands resent after reconnecting.
+     *
+     * @return Number of replayed commands.
+     */
+    public long getReplayedCommands() {
+        return replayed.get();
+    }
+
+    /**
+     * Get the total time spent reconnecting, from each loss of a connection
+     * until it was re-established.
+     *
+     * @param unit  Unit of time for the result.
+     *
+     * @return Total time to reconnect.
+     */
+    public long getTotalReconnectTime(TimeUnit unit) {
+        return unit.convert(totalTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxReconnectTime(TimeUnit unit) {
+        return unit.convert(maxTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getLastReconnectTime(TimeUnit unit) {
+        return unit.convert(lastTime, TimeUnit.NANOSECONDS);
+    }
+
+    void failed() {
+        failedAttempts.incrementAndGet();
+    }
+
+    void reconnected(long nanos, int commands) {
+        reconnects.incrementAndGet();
+        replayed.addAndGet(commands);
+        totalTime.addAndGet(nanos);
+        lastTime = nanos;
+
+        long max;
+        while ((max = maxTime.get()) < nanos && !maxTime.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "reconnects=" + reconnects + " failedAttempts=" + failedAttempts + " replayed=" + replayed
+                + " totalTime=" + getTotalReconnectTime(TimeUnit.MILLISECONDS) + "ms"
+                + " maxTime=" + getMaxReconnectTime(TimeUnit.MILLISECONDS) + "ms";
+    }
+}
@@ -0,0 +1,20 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+/**
+ * Strategy that decides how long the {@link ConnectionWatchdog} waits before
+ * each attempt to re-establish a lost connection, and when to give up.
+ *
+ * @author Will Glozer
+ */
+public interface ReconnectStrategy {
+    /**
+     * Get the delay before a reconnection attempt.
+     *
+     * @param attempt   Number of the attempt, starting at 1.
+     *
+     * @return Delay in milliseconds, or -1 to stop reconnecting.
+     */
+    long delay(int attempt);
+}
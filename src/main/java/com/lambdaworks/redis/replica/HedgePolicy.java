@@ -0,0 +1,101 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy for hedging reads: when a read sent to a replica has not completed
+ * within a delay, the same read is sent to another replica and the first reply
+ * wins. The delay is the configured percentile of recently observed replica read
+ * latencies, but never less than the minimum delay, so only the slowest reads are
+ * hedged.
+ *
+ * Latencies are kept in a window of the most recent 1024 reads and the delay is
+ * recomputed periodically rather than on every read.
+ *
+ * @author Will Glozer
+ */
+public class HedgePolicy {
+    private static final int WINDOW = 1024;
+
+    private double percentile;
+    private long minDelay;
+    private long[] samples;
+    private long count;
+    private volatile long delay;
+    private AtomicLong hedged;
+    private AtomicLong won;
+
+    /**
+     * Create a new hedging policy.
+     *
+     * @param percentile    Percentile of read latency after which to hedge, e.g. 95.
+     * @param minDelay      Minimum delay before hedging.
+     * @param unit          Unit of time for the minimum delay.
+     */
+    public HedgePolicy(double percentile, long minDelay, TimeUnit unit) {
+        if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("Invalid percentile");
+        this.percentile = percentile;
+        this.minDelay   = unit.toNanos(minDelay);
+        this.samples    = new long[WINDOW];
+        this.delay      = this.minDelay;
+        this.hedged     = new AtomicLong();
+        this.won        = new AtomicLong();
+    }
+
+    /**
+     * Get the current delay before a read is hedged.
+     *
+     * @param unit  Unit of time for the result.
+     *
+     * @return The delay.
+     */
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the number of reads that were hedged.
+     *
+     * @return Number of hedged reads.
+     */
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    /**
+     * Get the number of hedged reads that were answered first by the hedge.
+     *
+     * @return Number of hedged reads won by the hedge.
+     */
+    public long getWon() {
+        return won.get();
+    }
+
+    /**
+     * Record the latency of a completed replica read.
+     *
+     * @param nanos Time from dispatch to completion in nanoseconds.
+     */
+    synchronized void record(long nanos) {
+        samples[(int) (count++ % WINDOW)] = nanos;
+        if (count < WINDOW ? count % 16 == 0 : count % 128 == 0) {
+            int n = (int) Math.min(count, WINDOW);
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * n) - 1;
+            delay = Math.max(minDelay, sorted[Math.max(index, 0)]);
+        }
+    }
+
+    void hedged() {
+        hedged.incrementAndGet();
+    }
+
+    void won() {
+        won.incrementAndGet();
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import com.lambdaworks.redis.output.RecordingOutput;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read that may be sent to several replicas. Each attempt records its reply
+ * and the first to complete is replayed into this command's output, the other
+ * attempts are cancelled and their replies discarded.
+ *
+ * @author Will Glozer
+ */
+class HedgedCommand<K, V, T> extends Command<K, V, T> {
+    private HedgePolicy policy;
+    private List<Attempt> attempts;
+
+    HedgedCommand(HedgePolicy policy, CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        super(type, output, args, false);
+        this.policy   = policy;
+        this.attempts = new ArrayList<Attempt>(2);
+    }
+
+    /**
+     * Create a new attempt of this read to be sent to a replica.
+     *
+     * @param replica   Replica the attempt is sent to.
+     *
+     * @return The attempt, or null if this read has already completed.
+     */
+    synchronized ReplicaCommand<K, V, Void> attempt(Replica replica) {
+        if (isDone()) return null;
+        Attempt attempt = new Attempt(replica);
+        attempts.add(attempt);
+        if (attempts.size() > 1) policy.hedged();
+        return attempt;
+    }
+
+    synchronized Replica first() {
+        return attempts.get(0).replica;
+    }
+
+    @Override
+    public synchronized boolean cancel(boolean ignored) {
+        boolean cancelled = super.cancel(ignored);
+        if (cancelled) {
+            for (Attempt attempt : attempts) {
+                attempt.cancel(ignored);
+            }
+        }
+        return cancelled;
+    }
+
+    synchronized void completed(Attempt winner) {
+        if (isDone()) return;
+
+        try {
+            winner.recording.replay(output);
+        } catch (RuntimeException e) {
+            output.setError(e.toString());
+        }
+
+        for (Attempt attempt : attempts) {
+            if (attempt != winner) attempt.cancel(true);
+        }
+        if (winner != attempts.get(0)) policy.won();
+
+        complete();
+    }
+
+    class Attempt extends ReplicaCommand<K, V, Void> {
+        private RecordingOutput<K, V> recording;
+
+        Attempt(Replica replica) {
+            this(replica, new RecordingOutput<K, V>());
+        }
+
+        private Attempt(Replica replica, RecordingOutput<K, V> recording) {
+            super(replica, HedgedCommand.this.type, recording, HedgedCommand.this.args);
+            this.recording = recording;
+        }
+
+        @Override
+        public void complete() {
+            long nanos = latency();
+            super.complete();
+            policy.record(nanos);
+            completed(this);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An asynchronous thread-safe connection to a master and its replicas. Commands
+ * that are {@link CommandType#isReadOnly read-only} are sent to a replica chosen
+ * by the client's {@link ReadPolicy}, all other commands, and every command
+ * within a MULTI block, are sent to the master.
+ *
+ * @author Will Glozer
+ */
+public class MasterReplicaAsyncConnection<K, V> extends RedisAsyncConnection<K, V> {
+    private MasterReplicaClient client;
+    private RedisAsyncConnection<K, V> master;
+    private Map<String, RedisAsyncConnection<K, V>> replicas;
+    private String password;
+    private volatile boolean transaction;
+    private boolean closed;
+
+    /**
+     * Initialize a new connection.
+     *
+     * @param client  Client that owns the replicas.
+     * @param master  Connection to the master.
+     * @param codec   Codec used to encode/decode keys and values.
+     * @param timeout Maximum time to wait for a response.
+     * @param unit    Unit of time for the timeout.
+     */
+    public MasterReplicaAsyncConnection(MasterReplicaClient client, RedisAsyncConnection<K, V> master,
+                                        RedisCodec<K, V> codec, long timeout, TimeUnit unit) {
+        super(new LinkedBlockingQueue<Command<K, V, ?>>(), codec, timeout, unit);
+        this.client   = client;
+        this.master   = master;
+        this.replicas = new HashMap<String, RedisAsyncConnection<K, V>>();
+    }
+
+    /**
+     * Get the connection to the master.
+     *
+     * @return The master's connection.
+     */
+    public RedisAsyncConnection<K, V> getMaster() {
+        return master;
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        if (type.isReadOnly() && !transaction) {
+            Replica replica = select();
+            if (replica != null) {
+                HedgePolicy hedge = client.getHedgePolicy();
+                if (hedge != null && client.getReplicas().size() > 1) {
+                    return hedge(hedge, replica, type, output, args);
+                }
+                return send(connection(replica.node), new ReplicaCommand<K, V, T>(replica, type, output, args));
+            }
+        }
+        return master.dispatch(type, output, args);
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
+        return master.dispatch(cmd);
+    }
+
+    @Override
+    public String auth(String password) {
+        String status = master.auth(password);
+        List<RedisAsyncConnection<K, V>> replicas;
+        synchronized (this) {
+            replicas = new ArrayList<RedisAsyncConnection<K, V>>(this.replicas.values());
+            this.password = password;
+        }
+        for (RedisAsyncConnection<K, V> replica : replicas) {
+            replica.auth(password);
+        }
+        return status;
+    }
+
+    @Override
+    public String select(int db) {
+        throw new RedisException("SELECT is not supported by master/replica connections");
+    }
+
+    @Override
+    public synchronized Future<String> multi() {
+        transaction = true;
+        return master.multi();
+    }
+
+    @Override
+    public synchronized Future<List<Object>> exec() {
+        transaction = false;
+        return master.exec();
+    }
+
+    @Override
+    public synchronized Future<String> discard() {
+        transaction = false;
+        return master.discard();
+    }
+
+    @Override
+    public synchronized void setTimeout(long timeout, TimeUnit unit) {
+        super.setTimeout(timeout, unit);
+        master.setTimeout(timeout, unit);
+        for (RedisAsyncConnection<K, V> replica : replicas.values()) {
+            replica.setTimeout(timeout, unit);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<RedisAsyncConnection<K, V>> replicas;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            replicas = new ArrayList<RedisAsyncConnection<K, V>>(this.replicas.values());
+            this.replicas.clear();
+        }
+        master.close();
+        for (RedisAsyncConnection<K, V> replica : replicas) {
+            replica.close();
+        }
+        client.closed(this);
+    }
+
+    /**
+     * Send a read to a replica and schedule a hedge to another replica if the
+     * read has not completed within the policy's delay.
+     */
+    protected <T> Command<K, V, T> hedge(HedgePolicy policy, Replica replica, CommandType type,
+                                         CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        final HedgedCommand<K, V, T> cmd = new HedgedCommand<K, V, T>(policy, type, output, args);
+        send(connection(replica.node), cmd.attempt(replica));
+
+        client.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (cmd.isDone()) return;
+                List<Replica> others = new ArrayList<Replica>(client.getReplicas());
+                others.remove(cmd.first());
+                Replica other = others.isEmpty() ? null : client.getReadPolicy().select(others);
+                if (other == null) return;
+                try {
+                    RedisAsyncConnection<K, V> connection = connection(other.node);
+                    ReplicaCommand<K, V, Void> attempt = cmd.attempt(other);
+                    if (attempt != null) send(connection, attempt);
+                } catch (RedisException e) {
+                    // the first attempt may still complete
+                }
+            }
+        }, policy.getDelay(TimeUnit.NANOSECONDS));
+
+        return cmd;
+    }
+
+    /**
+     * Dispatch a replica read, removing it from the replica's reads in flight
+     * if it could not be sent.
+     */
+    private <T> Command<K, V, T> send(RedisAsyncConnection<K, V> connection, ReplicaCommand<K, V, T> cmd) {
+        try {
+            return connection.dispatch(cmd);
+        } catch (RuntimeException e) {
+            cmd.replica.undispatched();
+            throw e;
+        }
+    }
+
+    protected Replica select() {
+        List<Replica> replicas = client.getReplicas();
+        return replicas.isEmpty() ? null : client.getReadPolicy().select(replicas);
+    }
+
+    /**
+     * Get the connection to a replica, connecting outside the monitor on first
+     * use. A connection that loses the race to another thread, or is opened
+     * while this connection closes, is closed again.
+     */
+    protected RedisAsyncConnection<K, V> connection(String node) {
+        for (;;) {
+            String password;
+            long timeout;
+            TimeUnit unit;
+
+            synchronized (this) {
+                if (closed) throw new RedisException("Connection is closed");
+                RedisAsyncConnection<K, V> connection = replicas.get(node);
+                if (connection != null) return connection;
+                password = this.password;
+                timeout  = this.timeout;
+                unit     = this.unit;
+            }
+
+            RedisAsyncConnection<K, V> connection = client.client(node).connectAsync(codec);
+            connection.setTimeout(timeout, unit);
+            if (password != null) connection.auth(password);
+
+            synchronized (this) {
+                if (!closed && !replicas.containsKey(node) && equal(password, this.password)) {
+                    replicas.put(node, connection);
+                    return connection;
+                }
+            }
+            connection.close();
+        }
+    }
+
+    void remove(String node) {
+        RedisAsyncConnection<K, V> connection;
+        synchronized (this) {
+            connection = replicas.remove(node);
+        }
+        if (connection != null) connection.close();
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
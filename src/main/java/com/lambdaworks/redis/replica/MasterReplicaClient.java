@@ -0,0 +1,275 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A <a href="http://redis.io/">Redis</a> client for a master and its replicas
+ * that sends writes to the master and read-only commands to a replica chosen
+ * by the {@link ReadPolicy}. Replicas are discovered from the master's
+ * <code>INFO replication</code> section.
+ *
+ * Replication is asynchronous so reads from a replica may not observe the
+ * most recent writes to the master.
+ *
+ * @author Will Glozer
+ */
+public class MasterReplicaClient {
+    private String master;
+    private ConcurrentMap<String, RedisClient> clients;
+    private volatile List<Replica> replicas;
+    private volatile ReadPolicy policy;
+    private volatile HedgePolicy hedge;
+    private ScheduledExecutorService scheduler;
+    private List<MasterReplicaAsyncConnection<?, ?>> connections;
+    private long timeout;
+    private TimeUnit unit;
+
+    /**
+     * Create a new client for the master at the supplied host and port.
+     *
+     * @param host    Master hostname.
+     * @param port    Master port.
+     */
+    public MasterReplicaClient(String host, int port) {
+        this.master      = host + ":" + port;
+        this.clients     = new ConcurrentHashMap<String, RedisClient>();
+        this.connections = new CopyOnWriteArrayList<MasterReplicaAsyncConnection<?, ?>>();
+        this.policy      = ReadPolicy.POWER_OF_TWO;
+        setDefaultTimeout(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Set the default timeout for connections created by this client.
+     *
+     * @param timeout   Default connection timeout.
+     * @param unit      Unit of time for the timeout.
+     */
+    public synchronized void setDefaultTimeout(long timeout, TimeUnit unit) {
+        this.timeout = timeout;
+        this.unit    = unit;
+        for (RedisClient client : clients.values()) {
+            client.setDefaultTimeout(timeout, unit);
+        }
+    }
+
+    /**
+     * Set the policy used to choose the replica that serves each read.
+     *
+     * @param policy    Read policy.
+     */
+    public void setReadPolicy(ReadPolicy policy) {
+        this.policy = policy;
+    }
+
+    public ReadPolicy getReadPolicy() {
+        return policy;
+    }
+
+    /**
+     * Set the policy used to hedge slow reads to another replica. Reads are not
+     * hedged when the policy is null, the default, or fewer than two replicas
+     * are available.
+     *
+     * @param hedge Hedging policy, or null.
+     */
+    public void setHedgePolicy(HedgePolicy hedge) {
+        this.hedge = hedge;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedge;
+    }
+
+    /**
+     * Get the known replicas, whose statistics may be used for monitoring.
+     *
+     * @return The replicas.
+     */
+    public List<Replica> getReplicas() {
+        if (replicas == null) reloadReplicas();
+        return replicas;
+    }
+
+    /**
+     * Reload the replicas that are online from the master's
+     * <code>INFO replication</code> section. Connections to replicas
+     * that are no longer listed are closed.
+     */
+    public void reloadReplicas() {
+        RedisConnection<String, String> connection = client(master).connect();
+        try {
+            List<Replica> replicas = new ArrayList<Replica>();
+            Map<String, Replica> known = new HashMap<String, Replica>();
+            if (this.replicas != null) {
+                for (Replica replica : this.replicas) {
+                    known.put(replica.node, replica);
+                }
+            }
+
+            for (String node : parseReplicas(connection.info("replication"))) {
+                Replica replica = known.remove(node);
+                replicas.add(replica != null ? replica : new Replica(node));
+            }
+
+            this.replicas = Collections.unmodifiableList(replicas);
+
+            for (Replica removed : known.values()) {
+                for (MasterReplicaAsyncConnection<?, ?> c : connections) {
+                    c.remove(removed.node);
+                }
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Open a new synchronous connection that treats keys and values
+     * as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public RedisConnection<String, String> connect() {
+        return connect(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new asynchronous connection that treats keys and values
+     * as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public MasterReplicaAsyncConnection<String, String> connectAsync() {
+        return connectAsync(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new synchronous connection. The codec is shared by the connections
+     * to each node and its decode methods must be thread-safe.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> RedisConnection<K, V> connect(RedisCodec<K, V> codec) {
+        return new RedisConnection<K, V>(connectAsync(codec));
+    }
+
+    /**
+     * Open a new asynchronous connection. The codec is shared by the connections
+     * to each node and its decode methods must be thread-safe.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> MasterReplicaAsyncConnection<K, V> connectAsync(RedisCodec<K, V> codec) {
+        getReplicas();
+        RedisAsyncConnection<K, V> master = client(this.master).connectAsync(codec);
+        MasterReplicaAsyncConnection<K, V> connection = new MasterReplicaAsyncConnection<K, V>(this, master, codec, timeout, unit);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Shutdown this client and close all open connections. The client should be
+     * discarded after calling shutdown.
+     */
+    public void shutdown() {
+        List<RedisClient> clients;
+
+        synchronized (this) {
+            clients = new ArrayList<RedisClient>(this.clients.values());
+            this.clients.clear();
+            if (scheduler != null) scheduler.shutdownNow();
+        }
+
+        for (MasterReplicaAsyncConnection<?, ?> connection : connections) {
+            connection.close();
+        }
+        for (RedisClient client : clients) {
+            client.shutdown();
+        }
+    }
+
+    RedisClient client(String node) {
+        RedisClient client = clients.get(node);
+        if (client == null) {
+            int colon = node.lastIndexOf(':');
+            RedisClient created = new RedisClient(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+            synchronized (this) {
+                created.setDefaultTimeout(timeout, unit);
+            }
+            client = clients.putIfAbsent(node, created);
+            if (client == null) {
+                client = created;
+            } else {
+                created.shutdown();
+            }
+        }
+        return client;
+    }
+
+    synchronized void schedule(Runnable task, long nanos) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "lettuce-hedge");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        scheduler.schedule(task, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void closed(MasterReplicaAsyncConnection<?, ?> connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * Parse the online replicas from an <code>INFO replication</code> section, in
+     * either the <code>slave0:ip=host,port=6380,state=online,...</code> format
+     * or the older <code>slave0:host,6380,online</code> format.
+     *
+     * @param info  Output of <code>INFO replication</code>.
+     *
+     * @return The replicas as <code>host:port</code>.
+     */
+    static List<String> parseReplicas(String info) {
+        List<String> replicas = new ArrayList<String>();
+        for (String line : info.split("\r?\n")) {
+            if (!line.matches("slave\\d+:.*")) continue;
+
+            String host = null, port = null, state = null;
+            String[] fields = line.substring(line.indexOf(':') + 1).split(",");
+            for (String field : fields) {
+                int eq = field.indexOf('=');
+                if (eq == -1) break;
+                String name = field.substring(0, eq), value = field.substring(eq + 1);
+                if (name.equals("ip")) host = value;
+                if (name.equals("port")) port = value;
+                if (name.equals("state")) state = value;
+            }
+
+            if (host == null && fields.length >= 3) {
+                host  = fields[0];
+                port  = fields[1];
+                state = fields[2];
+            }
+
+            if (host != null && port != null && "online".equals(state)) {
+                replicas.add(host + ":" + port);
+            }
+        }
+        return replicas;
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Policies for choosing the node that serves a read-only command.
+ *
+ * @author Will Glozer
+ */
+public enum ReadPolicy {
+    /**
+     * Send all reads to the master.
+     */
+    MASTER {
+        @Override
+        Replica select(List<Replica> replicas) {
+            return null;
+        }
+    },
+
+    /**
+     * Send each read to a randomly chosen replica.
+     */
+    RANDOM {
+        @Override
+        Replica select(List<Replica> replicas) {
+            return replicas.get(random.nextInt(replicas.size()));
+        }
+    },
+
+    /**
+     * Send reads to each replica in turn.
+     */
+    ROUND_ROBIN {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        Replica select(List<Replica> replicas) {
+            int i = next.getAndIncrement() & Integer.MAX_VALUE;
+            return replicas.get(i % replicas.size());
+        }
+    },
+
+    /**
+     * Send reads to the replica with the lowest observed latency, preferring
+     * replicas that have not been measured yet.
+     */
+    LOWEST_LATENCY {
+        @Override
+        Replica select(List<Replica> replicas) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                long latency = replica.getLatency();
+                if (latency < 0) return replica;
+                if (best == null || latency < best.getLatency()) best = replica;
+            }
+            return best;
+        }
+    },
+
+    /**
+     * Pick two replicas at random and send the read to the one with the lower
+     * {@link Replica#getCost cost}, which avoids both slow replicas and herding
+     * every read onto the single fastest one.
+     */
+    POWER_OF_TWO {
+        @Override
+        Replica select(List<Replica> replicas) {
+            int size = replicas.size();
+            if (size == 1) return replicas.get(0);
+            int a = random.nextInt(size);
+            int b = random.nextInt(size - 1);
+            if (b >= a) b++;
+            Replica x = replicas.get(a), y = replicas.get(b);
+            return x.getCost() <= y.getCost() ? x : y;
+        }
+    };
+
+    private static final Random random = new Random();
+
+    /**
+     * Choose a replica.
+     *
+     * @param replicas  Non-empty list of replicas.
+     *
+     * @return The chosen replica, or null to read from the master.
+     */
+    abstract Replica select(List<Replica> replicas);
+}
@@ -0,0 +1,116 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A replica of the master, named <code>host:port</code>, and statistics of the
+ * reads sent to it: an exponentially decayed average of the latency from dispatch
+ * to completion, the number of reads in flight, and the number completed.
+ *
+ * The weight of each new latency sample grows with the time since the previous
+ * one, so the average reflects roughly the last second of reads regardless of
+ * the read rate.
+ *
+ * @author Will Glozer
+ */
+public class Replica {
+    private static final double DECAY = TimeUnit.SECONDS.toNanos(1);
+
+    public final String node;
+    private AtomicInteger inFlight;
+    private volatile long latency = -1;
+    private volatile long completed;
+    private volatile long updated;
+
+    public Replica(String node) {
+        this.node     = node;
+        this.inFlight = new AtomicInteger();
+    }
+
+    /**
+     * Get the decayed average latency of reads.
+     *
+     * @return Latency in nanoseconds, or -1 if no read has completed.
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get the number of reads sent to this replica that have not completed.
+     *
+     * @return Reads in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the number of reads completed by this replica.
+     *
+     * @return Completed reads.
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Get the expected cost of sending another read to this replica, which is
+     * the average latency scaled by the number of reads already in flight. The
+     * latency of an idle replica decays towards zero so that a replica which was
+     * once slow is eventually tried again.
+     *
+     * @return The cost, 0 if no read has completed.
+     */
+    public double getCost() {
+        long latency = this.latency;
+        if (latency < 0) return 0;
+        int inFlight = this.inFlight.get();
+        double cost = (double) latency * (inFlight + 1);
+        if (inFlight == 0) {
+            long idle = System.nanoTime() - updated;
+            cost *= Math.exp(-idle / DECAY);
+        }
+        return cost;
+    }
+
+    /**
+     * Record that a read was sent to this replica.
+     */
+    public void dispatched() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Record that a read counted as sent could not be dispatched.
+     */
+    public void undispatched() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Record the latency of a completed read.
+     *
+     * @param nanos Time from dispatch to completion in nanoseconds.
+     */
+    public synchronized void record(long nanos) {
+        long now = System.nanoTime();
+        if (latency < 0) {
+            latency = nanos;
+        } else {
+            double weight = 1 - Math.exp(-(now - updated) / DECAY);
+            latency += Math.round(weight * (nanos - latency));
+        }
+        updated = now;
+        completed++;
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return node + " latency=" + latency + "ns inFlight=" + inFlight.get() + " completed=" + completed;
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.replica;
+
+import com.lambdaworks.redis.protocol.*;
+
+/**
+ * A read sent to a replica that is counted in flight until it completes and
+ * records its latency on completion.
+ *
+ * @author Will Glozer
+ */
+class ReplicaCommand<K, V, T> extends Command<K, V, T> {
+    protected final Replica replica;
+    private long start;
+
+    ReplicaCommand(Replica replica, CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        super(type, output, args, false);
+        this.replica = replica;
+        this.start   = System.nanoTime();
+        replica.dispatched();
+    }
+
+    /**
+     * Get the time since this command was dispatched.
+     *
+     * @return Elapsed time in nanoseconds.
+     */
+    protected long latency() {
+        return System.nanoTime() - start;
+    }
+
+    @Override
+    public void complete() {
+        replica.record(latency());
+        super.complete();
+    }
+}
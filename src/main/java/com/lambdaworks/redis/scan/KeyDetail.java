@@ -0,0 +1,23 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.scan;
+
+/**
+ * Details of a key a {@link KeyspaceScanner} reads for each scanned key.
+ *
+ * @author Will Glozer
+ */
+public enum KeyDetail {
+    /**
+     * Type of the value, read with TYPE.
+     */
+    TYPE,
+    /**
+     * Remaining time to live in milliseconds, read with PTTL.
+     */
+    TTL,
+    /**
+     * Serialized value, read with DUMP.
+     */
+    DUMP
+}
@@ -0,0 +1,22 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.scan;
+
+/**
+ * Receives the keys found by a {@link KeyspaceScanner}. Keys are visited
+ * concurrently by the scanner's worker threads, so implementations must be
+ * thread-safe.
+ *
+ * @author Will Glozer
+ */
+public interface KeyVisitor<K> {
+    /**
+     * Visit a scanned key.
+     *
+     * @param key   Key and its details.
+     *
+     * @throws Exception if the key could not be processed, which is counted
+     *         as a failure and does not stop the scan.
+     */
+    void visit(ScannedKey<K> key) throws Exception;
+}
@@ -0,0 +1,277 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.scan;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.output.*;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * Scans the keyspace with SCAN and hands each key, along with the details
+ * requested for it, to a {@link KeyVisitor} running on a pool of worker
+ * threads. The next page is requested as soon as the current one arrives,
+ * and the TYPE, PTTL and DUMP commands for all keys of a page are sent in
+ * one pipelined write, with successive pages spread across the connections.
+ * The number of pages being read or visited at once is bounded so a slow
+ * visitor holds back the scan rather than buffering the keyspace.
+ *
+ * Progress is estimated from the number of keys in the database when the
+ * scan starts. The counters and the first failure describe the most recent
+ * scan and are reset when the next one starts.
+ *
+ * @author Will Glozer
+ */
+public class KeyspaceScanner<K, V> {
+    private List<RedisAsyncConnection<K, V>> connections;
+    private RedisCodec<K, V> codec;
+    private ExecutorService workers;
+    private Semaphore pages;
+    private int maxPages;
+    private volatile long total;
+    private volatile long started;
+    private volatile long finished;
+    private AtomicLong scanned;
+    private AtomicLong visited;
+    private AtomicLong failures;
+    private AtomicLong pagesRead;
+    private AtomicReference<Exception> failure;
+
+    /**
+     * Create a new scanner.
+     *
+     * @param connections   Connections to the server, the first of which sends SCAN.
+     * @param codec         Codec used to encode/decode keys and values.
+     * @param workers       Number of threads that visit keys.
+     */
+    public KeyspaceScanner(List<RedisAsyncConnection<K, V>> connections, RedisCodec<K, V> codec, int workers) {
+        if (connections.isEmpty() || workers < 1) throw new IllegalArgumentException("No connections or workers");
+
+        this.connections = new ArrayList<RedisAsyncConnection<K, V>>(connections);
+        this.codec       = codec;
+        this.maxPages    = 2 * Math.max(connections.size(), workers);
+        this.pages       = new Semaphore(maxPages);
+        this.scanned     = new AtomicLong();
+        this.visited     = new AtomicLong();
+        this.failures    = new AtomicLong();
+        this.pagesRead   = new AtomicLong();
+        this.failure     = new AtomicReference<Exception>();
+
+        this.workers = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lettuce-scan");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Scan the keyspace and visit every key found, returning when all keys
+     * have been visited.
+     *
+     * @param scanArgs  MATCH and COUNT of the SCAN.
+     * @param details   Details to read for each key.
+     * @param visitor   Visitor of the keys.
+     *
+     * @return Number of keys visited without failure.
+     *
+     * @throws RedisException if a SCAN fails or times out.
+     */
+    public long scan(ScanArgs scanArgs, Set<KeyDetail> details, KeyVisitor<K> visitor) {
+        RedisAsyncConnection<K, V> connection = connections.get(0);
+
+        scanned.set(0);
+        visited.set(0);
+        failures.set(0);
+        pagesRead.set(0);
+        failure.set(null);
+
+        total    = await(connection, connection.dbsize());
+        started  = System.nanoTime();
+        finished = 0;
+
+        try {
+            Future<ScanCursor<K>> next = connection.scan(ScanCursor.INITIAL, scanArgs);
+            for (int page = 0; next != null; page++) {
+                ScanCursor<K> cursor = await(connection, next);
+                next = cursor.isFinished() ? null : connection.scan(cursor.cursor, scanArgs);
+                pagesRead.incrementAndGet();
+
+                if (cursor.items.isEmpty()) continue;
+                scanned.addAndGet(cursor.items.size());
+
+                pages.acquire();
+                try {
+                    RedisAsyncConnection<K, V> target = connections.get(page % connections.size());
+                    workers.execute(new Page(target, cursor.items, details, visitor));
+                } catch (RuntimeException e) {
+                    pages.release();
+                    throw e;
+                }
+            }
+
+            pages.acquire(maxPages);
+            pages.release(maxPages);
+        } catch (InterruptedException e) {
+            throw new RedisCommandInterruptedException(e);
+        } finally {
+            finished = System.nanoTime();
+        }
+
+        return visited.get();
+    }
+
+    /**
+     * Stop the worker threads. The connections remain open.
+     */
+    public void close() {
+        workers.shutdown();
+    }
+
+    /**
+     * Get the fraction of the keyspace visited, estimated from the number of
+     * keys in the database when the scan started.
+     *
+     * @return Progress between 0 and 1.
+     */
+    public double getProgress() {
+        long total = this.total;
+        if (total == 0) return finished != 0 ? 1.0 : 0.0;
+        return Math.min(1.0, (double) (visited.get() + failures.get()) / total);
+    }
+
+    /**
+     * Get the number of keys visited per second since the scan started.
+     *
+     * @return Keys per second.
+     */
+    public double getRate() {
+        long end = finished != 0 ? finished : System.nanoTime();
+        long elapsed = end - started;
+        if (started == 0 || elapsed <= 0) return 0;
+        return visited.get() * 1e9 / elapsed;
+    }
+
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    public long getVisited() {
+        return visited.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getPages() {
+        return pagesRead.get();
+    }
+
+    /**
+     * Get the first exception thrown while reading the details of a key or
+     * visiting it during the most recent scan.
+     *
+     * @return The first failure, or null if there were none.
+     */
+    public Exception getFirstFailure() {
+        return failure.get();
+    }
+
+    @Override
+    public String toString() {
+        return "scanned=" + scanned + " visited=" + visited + " failures=" + failures + " pages=" + pagesRead +
+               String.format(" rate=%.0f/s progress=%.1f%%", getRate(), getProgress() * 100);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V, T> T await(RedisAsyncConnection<K, V> connection, Future<T> future) {
+        Command<K, V, T> cmd = (Command<K, V, T>) future;
+        if (!connection.awaitAll(cmd)) {
+            cmd.cancel(true);
+            throw new RedisException("Command timed out");
+        }
+        CommandOutput<K, V, T> output = cmd.getOutput();
+        if (output.hasError()) throw new RedisException(output.getError());
+        return output.get();
+    }
+
+    /**
+     * The follow-up commands of one page of keys, sent when the page is
+     * handed to a worker, which waits for their replies and visits each key.
+     */
+    class Page implements Runnable {
+        private RedisAsyncConnection<K, V> connection;
+        private List<K> keys;
+        private KeyVisitor<K> visitor;
+        private List<Command<K, V, String>> types;
+        private List<Command<K, V, Long>> ttls;
+        private List<Command<K, V, byte[]>> dumps;
+
+        Page(RedisAsyncConnection<K, V> connection, List<K> keys, Set<KeyDetail> details, KeyVisitor<K> visitor) {
+            this.connection = connection;
+            this.keys       = keys;
+            this.visitor    = visitor;
+
+            List<Command<K, V, ?>> cmds = new ArrayList<Command<K, V, ?>>(keys.size() * details.size());
+            if (details.contains(KeyDetail.TYPE)) {
+                types = new ArrayList<Command<K, V, String>>(keys.size());
+                for (K key : keys) {
+                    types.add(new Command<K, V, String>(TYPE, new StatusOutput<K, V>(codec), args(key), false));
+                }
+                cmds.addAll(types);
+            }
+            if (details.contains(KeyDetail.TTL)) {
+                ttls = new ArrayList<Command<K, V, Long>>(keys.size());
+                for (K key : keys) {
+                    ttls.add(new Command<K, V, Long>(PTTL, new IntegerOutput<K, V>(codec), args(key), false));
+                }
+                cmds.addAll(ttls);
+            }
+            if (details.contains(KeyDetail.DUMP)) {
+                dumps = new ArrayList<Command<K, V, byte[]>>(keys.size());
+                for (K key : keys) {
+                    dumps.add(new Command<K, V, byte[]>(DUMP, new ByteArrayOutput<K, V>(codec), args(key), false));
+                }
+                cmds.addAll(dumps);
+            }
+            if (!cmds.isEmpty()) connection.dispatch(cmds);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < keys.size(); i++) {
+                    visit(i);
+                }
+            } finally {
+                pages.release();
+            }
+        }
+
+        private void visit(int i) {
+            try {
+                String type = types != null ? await(connection, types.get(i)) : null;
+                Long ttl = ttls != null ? await(connection, ttls.get(i)) : null;
+                byte[] dump = dumps != null ? await(connection, dumps.get(i)) : null;
+                visitor.visit(new ScannedKey<K>(keys.get(i), type, ttl, dump));
+                visited.incrementAndGet();
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                failures.incrementAndGet();
+            }
+        }
+
+        private CommandArgs<K, V> args(K key) {
+            return new CommandArgs<K, V>(codec).addKey(key);
+        }
+    }
+}
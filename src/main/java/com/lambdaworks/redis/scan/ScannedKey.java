@@ -0,0 +1,28 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.scan;
+
+/**
+ * A key found by a {@link KeyspaceScanner} and the details read for it.
+ * Details that were not requested are null.
+ *
+ * @author Will Glozer
+ */
+public class ScannedKey<K> {
+    public final K key;
+    public final String type;
+    public final Long ttl;
+    public final byte[] dump;
+
+    public ScannedKey(K key, String type, Long ttl, byte[] dump) {
+        this.key  = key;
+        this.type = type;
+        this.ttl  = ttl;
+        this.dump = dump;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%s, %s, %s)", key, type, ttl);
+    }
+}
@@ -0,0 +1,292 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.sentinel;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import com.lambdaworks.redis.protocol.Endpoints;
+import com.lambdaworks.redis.pubsub.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * A <a href="http://redis.io/">Redis</a> client that asks
+ * <a href="http://redis.io/topics/sentinel">Sentinel</a> for the current master
+ * of a monitored group, and re-points all of its connections to the new master as
+ * soon as a sentinel announces a failover with <code>+switch-master</code>.
+ *
+ * Sentinels are tried in order until one responds. When the subscription to a
+ * sentinel is lost it is re-established with the following sentinels in turn,
+ * and the master address is checked again each time it is established, so a
+ * failover missed while disconnected is still detected.
+ *
+ * @author Will Glozer
+ */
+public class RedisSentinelClient {
+    public static final String SWITCH_MASTER = "+switch-master";
+
+    private String masterName;
+    private String[] sentinels;
+    private final Object starting = new Object();
+    private volatile RedisClient master;
+    private volatile RedisClient sentinel;
+    private RedisPubSubConnection<String, String> events;
+    private ExecutorService executor;
+    private volatile String address;
+    private volatile long failovers;
+    private long timeout;
+    private TimeUnit unit;
+
+    /**
+     * Create a new client for the master named <code>masterName</code>, monitored
+     * by the supplied sentinels.
+     *
+     * @param masterName    Name of the monitored master.
+     * @param sentinels     Sentinel addresses as <code>host:port</code>.
+     */
+    public RedisSentinelClient(String masterName, String... sentinels) {
+        if (sentinels.length == 0) throw new IllegalArgumentException("No sentinels");
+        this.masterName = masterName;
+        this.sentinels  = sentinels.clone();
+        this.executor   = Executors.newSingleThreadExecutor();
+        setDefaultTimeout(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Set the default timeout for connections created by this client.
+     *
+     * @param timeout   Default connection timeout.
+     * @param unit      Unit of time for the timeout.
+     */
+    public synchronized void setDefaultTimeout(long timeout, TimeUnit unit) {
+        this.timeout = timeout;
+        this.unit    = unit;
+        if (master != null) master.setDefaultTimeout(timeout, unit);
+        if (sentinel != null) sentinel.setDefaultTimeout(timeout, unit);
+    }
+
+    /**
+     * Get the address of the current master.
+     *
+     * @return The master as <code>host:port</code>.
+     */
+    public String getMaster() {
+        start();
+        return address;
+    }
+
+    /**
+     * Get the number of failovers this client has followed.
+     *
+     * @return Number of failovers.
+     */
+    public long getFailovers() {
+        return failovers;
+    }
+
+    /**
+     * Open a new synchronous connection to the master that treats keys and
+     * values as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public RedisConnection<String, String> connect() {
+        return connect(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new asynchronous connection to the master that treats keys and
+     * values as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public RedisAsyncConnection<String, String> connectAsync() {
+        return connectAsync(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new pub/sub connection to the master that treats keys and
+     * values as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public RedisPubSubConnection<String, String> connectPubSub() {
+        return connectPubSub(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new synchronous connection to the master.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> RedisConnection<K, V> connect(RedisCodec<K, V> codec) {
+        return start().connect(codec);
+    }
+
+    /**
+     * Open a new asynchronous connection to the master.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> RedisAsyncConnection<K, V> connectAsync(RedisCodec<K, V> codec) {
+        return start().connectAsync(codec);
+    }
+
+    /**
+     * Open a new pub/sub connection to the master.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> RedisPubSubConnection<K, V> connectPubSub(RedisCodec<K, V> codec) {
+        return start().connectPubSub(codec);
+    }
+
+    /**
+     * Shutdown this client and close all open connections. The client should be
+     * discarded after calling shutdown.
+     */
+    public synchronized void shutdown() {
+        executor.shutdownNow();
+        if (master != null) master.shutdown();
+        if (sentinel != null) sentinel.shutdown();
+    }
+
+    /**
+     * Discover the master and subscribe to failover announcements, if not
+     * already done.
+     *
+     * @return The client connected to the current master.
+     */
+    protected RedisClient start() {
+        RedisClient master = this.master;
+        if (master != null) return master;
+
+        synchronized (starting) {
+            if (this.master != null) return this.master;
+
+            RedisException failure = null;
+            for (int i = 0; i < sentinels.length; i++) {
+                RedisClient client = client(sentinels[i]);
+                String address;
+                try {
+                    RedisConnection<String, String> connection = client.connect();
+                    try {
+                        address = query(connection);
+                    } finally {
+                        connection.close();
+                    }
+                } catch (RedisException e) {
+                    failure = e;
+                    continue;
+                } finally {
+                    client.shutdown();
+                }
+
+                return subscribe(i, address);
+            }
+
+            throw new RedisException("No sentinel available for master " + masterName, failure);
+        }
+    }
+
+    /**
+     * Subscribe to failover announcements through all sentinels, starting
+     * with the one at the supplied index, and connect to the master.
+     *
+     * @param index     Index of the first sentinel.
+     * @param address   Current master as <code>host:port</code>.
+     *
+     * @return The client connected to the current master.
+     */
+    private RedisClient subscribe(int index, String address) {
+        String[] endpoints = new String[sentinels.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = sentinels[(index + i) % sentinels.length];
+        }
+
+        RedisClient client = new RedisClient(new Endpoints(endpoints));
+        RedisClient master = client(address);
+        synchronized (this) {
+            client.setDefaultTimeout(timeout, unit);
+            this.sentinel = client;
+            this.address  = address;
+            this.master   = master;
+        }
+
+        events = client.connectPubSub();
+        events.addListener(new Listener());
+        events.subscribe(SWITCH_MASTER);
+        return master;
+    }
+
+    /**
+     * Re-point all connections to a new master.
+     *
+     * @param address   New master as <code>host:port</code>.
+     */
+    protected synchronized void failover(String address) {
+        if (master == null || address.equals(this.address)) return;
+        this.address = address;
+        failovers++;
+        int colon = address.lastIndexOf(':');
+        master.setRemoteAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    protected String query(RedisConnection<String, String> connection) {
+        List<String> reply = connection.sentinelGetMasterAddrByName(masterName);
+        if (reply == null || reply.size() < 2 || reply.get(0) == null) {
+            throw new RedisException("Unknown master " + masterName);
+        }
+        return reply.get(0) + ":" + reply.get(1);
+    }
+
+    protected RedisClient client(String node) {
+        int colon = node.lastIndexOf(':');
+        RedisClient client = new RedisClient(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+        client.setDefaultTimeout(timeout, unit);
+        return client;
+    }
+
+    /**
+     * Follows <code>+switch-master</code> announcements, formatted as
+     * <code>name old-ip old-port new-ip new-port</code>, and re-checks the
+     * master whenever the subscription is (re)established.
+     */
+    class Listener extends RedisPubSubAdapter<String, String> {
+        @Override
+        public void message(String channel, String message) {
+            String[] fields = message.split(" ");
+            if (fields.length == 5 && fields[0].equals(masterName)) {
+                failover(fields[3] + ":" + fields[4]);
+            }
+        }
+
+        @Override
+        public void subscribed(String channel, long count) {
+            if (sentinel == null) return;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        RedisConnection<String, String> connection = sentinel.connect();
+                        try {
+                            failover(query(connection));
+                        } finally {
+                            connection.close();
+                        }
+                    } catch (RedisException e) {
+                        // keep the current master until the next announcement
+                    }
+                }
+            });
+        }
+    }
+}
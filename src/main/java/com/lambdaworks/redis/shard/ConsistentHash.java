@@ -0,0 +1,115 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.shard;
+
+import com.lambdaworks.redis.RedisException;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A ketama-style consistent hash ring. Each node is placed on the ring at
+ * 160 points derived from MD5 digests of its name, and a key belongs to the
+ * node owning the first point at or after the key's hash, wrapping around.
+ * Adding or removing a node only moves the keys adjacent to its points.
+ *
+ * Instances are immutable and safe for use by multiple threads.
+ *
+ * @param <N> Node type, named by its {@link Object#toString}.
+ *
+ * @author Will Glozer
+ */
+public class ConsistentHash<N> {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int DIGESTS = 40;
+
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RedisException("JVM does not support MD5");
+            }
+        }
+    };
+
+    private List<N> nodes;
+    private long[] points;
+    private Object[] owners;
+
+    /**
+     * Build a ring of the supplied nodes.
+     *
+     * @param nodes Nodes on the ring.
+     */
+    public ConsistentHash(Collection<N> nodes) {
+        this.nodes = Collections.unmodifiableList(new ArrayList<N>(nodes));
+
+        long[] packed = new long[this.nodes.size() * DIGESTS * 4];
+        int count = 0;
+
+        for (int n = 0; n < this.nodes.size(); n++) {
+            String name = this.nodes.get(n).toString();
+            for (int i = 0; i < DIGESTS; i++) {
+                byte[] digest = md5((name + "-" + i).getBytes(UTF8));
+                for (int h = 0; h < 4; h++) {
+                    packed[count++] = point(digest, h) << 31 | n;
+                }
+            }
+        }
+
+        Arrays.sort(packed);
+
+        points = new long[count];
+        owners = new Object[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = packed[i] >>> 31;
+            owners[i] = this.nodes.get((int) (packed[i] & Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Get the nodes on the ring, in the order they were supplied.
+     *
+     * @return The nodes.
+     */
+    public List<N> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the node that owns a key.
+     *
+     * @param key   Encoded key.
+     *
+     * @return The owning node, or null if the ring is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public N get(byte[] key) {
+        if (points.length == 0) return null;
+
+        int i = Arrays.binarySearch(points, point(md5(key), 0));
+        if (i < 0) {
+            i = -i - 1;
+            if (i == points.length) i = 0;
+        }
+
+        return (N) owners[i];
+    }
+
+    private static long point(byte[] digest, int h) {
+        return (long) (digest[3 + h * 4] & 0xFF) << 24
+                    | (digest[2 + h * 4] & 0xFF) << 16
+                    | (digest[1 + h * 4] & 0xFF) << 8
+                    | (digest[h * 4] & 0xFF);
+    }
+
+    private static byte[] md5(byte[] bytes) {
+        MessageDigest md = MD5.get();
+        md.reset();
+        return md.digest(bytes);
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.shard;
+
+import com.lambdaworks.redis.protocol.*;
+
+/**
+ * A command that is split into parts executed on different nodes and
+ * completes once every part has completed. The output of each successful
+ * part is merged into this command's output by {@link #merge}, an error
+ * in any part becomes the error of the whole command.
+ *
+ * @param <T> Command output type.
+ *
+ * @author Will Glozer
+ */
+public abstract class GatherCommand<K, V, T> extends Command<K, V, T> {
+    private int remaining;
+
+    /**
+     * Create a new command.
+     *
+     * @param type      Command type.
+     * @param output    Output the parts are merged into.
+     * @param parts     Number of parts.
+     */
+    public GatherCommand(CommandType type, CommandOutput<K, V, T> output, int parts) {
+        super(type, output, null, false);
+        this.remaining = parts;
+    }
+
+    /**
+     * Create a part of this command, to be dispatched on a node's connection.
+     *
+     * @param output    Part output.
+     * @param args      Part args.
+     * @param index     Index of the part passed to {@link #merge}.
+     *
+     * @return The part.
+     */
+    public <P> Command<K, V, P> part(CommandOutput<K, V, P> output, CommandArgs<K, V> args, int index) {
+        return new Part<P>(type, output, args, index);
+    }
+
+    /**
+     * Merge the output of a successful part into this command's output.
+     *
+     * @param index     Index of the part.
+     * @param part      Output of the part.
+     */
+    protected abstract void merge(int index, CommandOutput<K, V, ?> part);
+
+    protected synchronized void completed(int index, CommandOutput<K, V, ?> part) {
+        if (output != null && !output.hasError()) {
+            if (part == null) {
+                output.setError("Command cancelled");
+            } else if (part.hasError()) {
+                output.setError(part.getError());
+            } else {
+                merge(index, part);
+            }
+        }
+        if (--remaining == 0) complete();
+    }
+
+    private class Part<P> extends Command<K, V, P> {
+        private int index;
+
+        Part(CommandType type, CommandOutput<K, V, P> output, CommandArgs<K, V> args, int index) {
+            super(type, output, args, false);
+            this.index = index;
+        }
+
+        @Override
+        public void complete() {
+            super.complete();
+            completed(index, output);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.shard;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.output.*;
+import com.lambdaworks.redis.protocol.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.lambdaworks.redis.protocol.CommandType.*;
+
+/**
+ * An asynchronous thread-safe connection to a set of redis servers that
+ * routes each command to the node owning its first key on the client's
+ * {@link ConsistentHash ring}. Commands without a key are sent to the first
+ * node. Connections to each node are opened on first use.
+ *
+ * Multi-key {@link #mget}, {@link #mset} and {@link #del} commands are split
+ * by node, sent to all nodes in parallel, and merged into a single result in
+ * the original key order. Any other multi-key command, such as SUNION or
+ * RENAME, must only use keys owned by one node and is rejected otherwise.
+ *
+ * Transactions are not supported across nodes, use {@link #getConnection}
+ * to obtain the connection to the node owning a key and run MULTI/EXEC there.
+ * SCAN is not supported either since a cursor covers a single node.
+ *
+ * @author Will Glozer
+ */
+public class ShardedAsyncConnection<K, V> extends RedisAsyncConnection<K, V> {
+    private static final EnumSet<CommandType> MULTI_KEY = EnumSet.of(
+        BITOP, BLPOP, BRPOP, BRPOPLPUSH, DEL, EVAL, EVALSHA, MGET, MSET, MSETNX,
+        RENAME, RENAMENX, RPOPLPUSH, SDIFF, SDIFFSTORE, SINTER, SINTERSTORE, SMOVE,
+        SUNION, SUNIONSTORE, WATCH, ZINTERSTORE, ZUNIONSTORE
+    );
+
+    private ShardedRedisClient client;
+    private Map<String, RedisAsyncConnection<K, V>> connections;
+    private String password;
+    private int db;
+    private boolean closed;
+
+    /**
+     * Initialize a new connection.
+     *
+     * @param client  Client that owns the ring.
+     * @param codec   Codec used to encode/decode keys and values.
+     * @param timeout Maximum time to wait for a response.
+     * @param unit    Unit of time for the timeout.
+     */
+    public ShardedAsyncConnection(ShardedRedisClient client, RedisCodec<K, V> codec, long timeout, TimeUnit unit) {
+        super(new LinkedBlockingQueue<Command<K, V, ?>>(), codec, timeout, unit);
+        this.client      = client;
+        this.connections = new HashMap<String, RedisAsyncConnection<K, V>>();
+    }
+
+    /**
+     * Get the connection to the node that owns a key.
+     *
+     * @param key   Key.
+     *
+     * @return The node's connection.
+     */
+    public RedisAsyncConnection<K, V> getConnection(K key) {
+        return connection(client.ring().get(codec.encodeKey(key)));
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(CommandType type, CommandOutput<K, V, T> output, CommandArgs<K, V> args) {
+        return connection(type, args).dispatch(type, output, args);
+    }
+
+    @Override
+    public <T> Command<K, V, T> dispatch(Command<K, V, T> cmd) {
+        return connection(cmd.type, cmd.getArgs()).dispatch(cmd);
+    }
+
+    /**
+     * Dispatch a batch of commands, routing each by its first key and writing
+     * the commands for each node in a single pipelined flush.
+     *
+     * @param cmds  Commands to dispatch.
+     */
+    @Override
+    public void dispatch(Collection<? extends Command<K, V, ?>> cmds) {
+        Map<RedisAsyncConnection<K, V>, List<Command<K, V, ?>>> batches =
+                new LinkedHashMap<RedisAsyncConnection<K, V>, List<Command<K, V, ?>>>();
+
+        for (Command<K, V, ?> cmd : cmds) {
+            RedisAsyncConnection<K, V> connection = connection(cmd.type, cmd.getArgs());
+            List<Command<K, V, ?>> batch = batches.get(connection);
+            if (batch == null) {
+                batch = new ArrayList<Command<K, V, ?>>();
+                batches.put(connection, batch);
+            }
+            batch.add(cmd);
+        }
+
+        for (Map.Entry<RedisAsyncConnection<K, V>, List<Command<K, V, ?>>> batch : batches.entrySet()) {
+            batch.getKey().dispatch(batch.getValue());
+        }
+    }
+
+    @Override
+    public Future<Long> del(K... keys) {
+        final Groups groups = group(Arrays.asList(keys));
+        if (groups.size() < 2) return super.del(keys);
+
+        GatherCommand<K, V, Long> gather = new GatherCommand<K, V, Long>(DEL, new IntegerOutput<K, V>(codec), groups.size()) {
+            private long deleted;
+
+            @Override
+            protected void merge(int index, CommandOutput<K, V, ?> part) {
+                deleted += (Long) part.get();
+                output.set(deleted);
+            }
+        };
+
+        for (int i = 0; i < groups.size(); i++) {
+            CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKeys(groups.keys(i));
+            connection(groups.node(i)).dispatch(gather.part(new IntegerOutput<K, V>(codec), args, i));
+        }
+
+        return gather;
+    }
+
+    @Override
+    public Future<List<V>> mget(K... keys) {
+        final Groups groups = group(Arrays.asList(keys));
+        if (groups.size() < 2) return super.mget(keys);
+
+        final List<V> values = new ArrayList<V>(Collections.<V>nCopies(keys.length, null));
+        CommandOutput<K, V, List<V>> output = new CommandOutput<K, V, List<V>>(codec, values) {};
+
+        GatherCommand<K, V, List<V>> gather = new GatherCommand<K, V, List<V>>(MGET, output, groups.size()) {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void merge(int index, CommandOutput<K, V, ?> part) {
+                List<V> partial = (List<V>) part.get();
+                List<Integer> indexes = groups.indexes(index);
+                for (int i = 0; i < indexes.size(); i++) {
+                    values.set(indexes.get(i), partial.get(i));
+                }
+            }
+        };
+
+        for (int i = 0; i < groups.size(); i++) {
+            CommandArgs<K, V> args = new CommandArgs<K, V>(codec).addKeys(groups.keys(i));
+            connection(groups.node(i)).dispatch(gather.part(new ValueListOutput<K, V>(codec), args, i));
+        }
+
+        return gather;
+    }
+
+    @Override
+    public Future<String> mset(Map<K, V> map) {
+        Groups groups = group(map.keySet());
+        if (groups.size() < 2) return super.mset(map);
+
+        GatherCommand<K, V, String> gather = new GatherCommand<K, V, String>(MSET, new StatusOutput<K, V>(codec), groups.size()) {
+            @Override
+            protected void merge(int index, CommandOutput<K, V, ?> part) {
+                output.set(Charsets.buffer((String) part.get()));
+            }
+        };
+
+        for (int i = 0; i < groups.size(); i++) {
+            Map<K, V> partial = new LinkedHashMap<K, V>();
+            for (K key : groups.keys(i)) {
+                partial.put(key, map.get(key));
+            }
+            CommandArgs<K, V> args = new CommandArgs<K, V>(codec).add(partial);
+            connection(groups.node(i)).dispatch(gather.part(new StatusOutput<K, V>(codec), args, i));
+        }
+
+        return gather;
+    }
+
+    @Override
+    public String auth(String password) {
+        String status = null;
+        for (RedisAsyncConnection<K, V> connection : connections()) {
+            status = connection.auth(password);
+        }
+        this.password = password;
+        return status;
+    }
+
+    @Override
+    public String select(int db) {
+        String status = null;
+        for (RedisAsyncConnection<K, V> connection : connections()) {
+            status = connection.select(db);
+        }
+        this.db = db;
+        return status;
+    }
+
+    @Override
+    public Future<String> multi() {
+        throw new RedisException("MULTI is not supported by sharded connections");
+    }
+
+    @Override
+    public Future<ScanCursor<K>> scan(String cursor, ScanArgs scanArgs) {
+        throw new RedisException("SCAN is not supported by sharded connections");
+    }
+
+    @Override
+    public synchronized void setTimeout(long timeout, TimeUnit unit) {
+        super.setTimeout(timeout, unit);
+        for (RedisAsyncConnection<K, V> connection : connections.values()) {
+            connection.setTimeout(timeout, unit);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (RedisAsyncConnection<K, V> connection : connections.values()) {
+            connection.close();
+        }
+        connections.clear();
+        client.closed(this);
+    }
+
+    /**
+     * Get the connection for a command, which is routed by its first key.
+     *
+     * @throws RedisException if a multi-key command uses keys owned by several nodes.
+     */
+    protected RedisAsyncConnection<K, V> connection(CommandType type, CommandArgs<K, V> args) {
+        byte[] first = (args != null) ? args.firstKey() : null;
+
+        if (first != null && MULTI_KEY.contains(type)) {
+            ConsistentHash<String> ring = client.ring();
+            String node = ring.get(first);
+            for (byte[] key : args.keys()) {
+                String owner = ring.get(key);
+                if (owner != null && !owner.equals(node)) {
+                    throw new RedisException(type + " keys must be owned by one node");
+                }
+            }
+        }
+
+        return connection(first);
+    }
+
+    protected RedisAsyncConnection<K, V> connection(byte[] key) {
+        ConsistentHash<String> ring = client.ring();
+        String node = (key != null) ? ring.get(key) : null;
+        if (node == null && !ring.nodes().isEmpty()) node = ring.nodes().get(0);
+        return connection(node);
+    }
+
+    protected synchronized RedisAsyncConnection<K, V> connection(String node) {
+        if (closed) throw new RedisException("Connection is closed");
+
+        RedisAsyncConnection<K, V> connection = connections.get(node);
+        if (connection == null) {
+            RedisClient nodeClient = (node != null) ? client.client(node) : null;
+            if (nodeClient == null) throw new RedisException("No node available for command");
+
+            connection = nodeClient.connectAsync(codec);
+            connection.setTimeout(timeout, unit);
+            if (password != null) connection.auth(password);
+            if (db != 0) connection.select(db);
+            connections.put(node, connection);
+        }
+
+        return connection;
+    }
+
+    protected synchronized Collection<RedisAsyncConnection<K, V>> connections() {
+        List<RedisAsyncConnection<K, V>> all = new ArrayList<RedisAsyncConnection<K, V>>();
+        for (String node : client.ring().nodes()) {
+            all.add(connection(node));
+        }
+        return all;
+    }
+
+    protected Groups group(Collection<K> keys) {
+        ConsistentHash<String> ring = client.ring();
+        Groups groups = new Groups();
+        int index = 0;
+        for (K key : keys) {
+            groups.add(ring.get(codec.encodeKey(key)), key, index++);
+        }
+        return groups;
+    }
+
+    synchronized void remove(String node) {
+        RedisAsyncConnection<K, V> connection = connections.remove(node);
+        if (connection != null) connection.close();
+    }
+
+    /**
+     * Keys grouped by the node that owns them, with the index of each key
+     * in the original order.
+     */
+    protected class Groups {
+        private Map<String, Integer> positions = new HashMap<String, Integer>();
+        private List<String> nodes = new ArrayList<String>();
+        private List<List<K>> keys = new ArrayList<List<K>>();
+        private List<List<Integer>> indexes = new ArrayList<List<Integer>>();
+
+        void add(String node, K key, int index) {
+            Integer position = positions.get(node);
+            if (position == null) {
+                position = nodes.size();
+                positions.put(node, position);
+                nodes.add(node);
+                keys.add(new ArrayList<K>());
+                indexes.add(new ArrayList<Integer>());
+            }
+            keys.get(position).add(key);
+            indexes.get(position).add(index);
+        }
+
+        public int size() {
+            return nodes.size();
+        }
+
+        public String node(int group) {
+            return nodes.get(group);
+        }
+
+        @SuppressWarnings("unchecked")
+        public K[] keys(int group) {
+            return (K[]) keys.get(group).toArray();
+        }
+
+        public List<Integer> indexes(int group) {
+            return indexes.get(group);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.shard;
+
+import com.lambdaworks.redis.*;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A <a href="http://redis.io/">Redis</a> client that partitions keys across
+ * multiple independent redis servers with a {@link ConsistentHash consistent
+ * hash} ring. Nodes are named <code>host:port</code> and may be added or removed
+ * at runtime, which only moves the keys adjacent to the node's points on the ring.
+ *
+ * @author Will Glozer
+ */
+public class ShardedRedisClient {
+    private Map<String, RedisClient> clients;
+    private List<String> nodes;
+    private volatile ConsistentHash<String> ring;
+    private List<ShardedAsyncConnection<?, ?>> connections;
+    private long timeout;
+    private TimeUnit unit;
+
+    /**
+     * Create a new client that partitions keys across the supplied nodes.
+     *
+     * @param nodes Nodes as <code>host:port</code>, or <code>host</code> for the default port.
+     */
+    public ShardedRedisClient(String... nodes) {
+        this.clients     = new ConcurrentHashMap<String, RedisClient>();
+        this.nodes       = new ArrayList<String>();
+        this.ring        = new ConsistentHash<String>(Collections.<String>emptyList());
+        this.connections = new CopyOnWriteArrayList<ShardedAsyncConnection<?, ?>>();
+
+        setDefaultTimeout(60, TimeUnit.SECONDS);
+
+        for (String node : nodes) {
+            int colon = node.lastIndexOf(':');
+            if (colon == -1) {
+                addNode(node, 6379);
+            } else {
+                addNode(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+            }
+        }
+    }
+
+    /**
+     * Set the default timeout for connections created by this client.
+     *
+     * @param timeout   Default connection timeout.
+     * @param unit      Unit of time for the timeout.
+     */
+    public synchronized void setDefaultTimeout(long timeout, TimeUnit unit) {
+        this.timeout = timeout;
+        this.unit    = unit;
+        for (RedisClient client : clients.values()) {
+            client.setDefaultTimeout(timeout, unit);
+        }
+    }
+
+    /**
+     * Add a node to the ring.
+     *
+     * @param host  Server hostname.
+     * @param port  Server port.
+     */
+    public synchronized void addNode(String host, int port) {
+        String node = host + ":" + port;
+        if (clients.containsKey(node)) return;
+
+        RedisClient client = new RedisClient(host, port);
+        client.setDefaultTimeout(timeout, unit);
+        clients.put(node, client);
+        nodes.add(node);
+
+        ring = new ConsistentHash<String>(nodes);
+    }
+
+    /**
+     * Remove a node from the ring and close all connections to it. Pending
+     * commands on the node will fail.
+     *
+     * @param host  Server hostname.
+     * @param port  Server port.
+     */
+    public void removeNode(String host, int port) {
+        String node = host + ":" + port;
+        RedisClient client;
+
+        synchronized (this) {
+            if ((client = clients.remove(node)) == null) return;
+            nodes.remove(node);
+            ring = new ConsistentHash<String>(nodes);
+        }
+
+        for (ShardedAsyncConnection<?, ?> connection : connections) {
+            connection.remove(node);
+        }
+        client.shutdown();
+    }
+
+    /**
+     * Get the nodes on the ring, in the order they were added.
+     *
+     * @return The nodes as <code>host:port</code>.
+     */
+    public List<String> getNodes() {
+        return ring.nodes();
+    }
+
+    /**
+     * Open a new synchronous sharded connection that treats keys and values
+     * as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public RedisConnection<String, String> connect() {
+        return connect(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new asynchronous sharded connection that treats keys and values
+     * as UTF-8 strings.
+     *
+     * @return A new connection.
+     */
+    public ShardedAsyncConnection<String, String> connectAsync() {
+        return connectAsync(new Utf8StringCodec());
+    }
+
+    /**
+     * Open a new synchronous sharded connection. The codec is shared by the
+     * connections to each node and its decode methods must be thread-safe.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> RedisConnection<K, V> connect(RedisCodec<K, V> codec) {
+        return new RedisConnection<K, V>(connectAsync(codec));
+    }
+
+    /**
+     * Open a new asynchronous sharded connection. The codec is shared by the
+     * connections to each node and its decode methods must be thread-safe.
+     *
+     * @param codec Use this codec to encode/decode keys and values.
+     *
+     * @return A new connection.
+     */
+    public <K, V> ShardedAsyncConnection<K, V> connectAsync(RedisCodec<K, V> codec) {
+        ShardedAsyncConnection<K, V> connection = new ShardedAsyncConnection<K, V>(this, codec, timeout, unit);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Shutdown this client and close all open connections. The client should be
+     * discarded after calling shutdown.
+     */
+    public void shutdown() {
+        List<RedisClient> clients;
+
+        synchronized (this) {
+            clients = new ArrayList<RedisClient>(this.clients.values());
+            this.clients.clear();
+            nodes.clear();
+            ring = new ConsistentHash<String>(nodes);
+        }
+
+        for (ShardedAsyncConnection<?, ?> connection : connections) {
+            connection.close();
+        }
+        for (RedisClient client : clients) {
+            client.shutdown();
+        }
+    }
+
+    ConsistentHash<String> ring() {
+        return ring;
+    }
+
+    RedisClient client(String node) {
+        return clients.get(node);
+    }
+
+    void closed(ShardedAsyncConnection<?, ?> connection) {
+        connections.remove(connection);
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.codec;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Base10Test {
+    protected Charset charset = Charset.forName("US-ASCII");
+
+    @Test
+    public void encodeLong() throws Exception {
+        long[] values = { 0, 1, -1, 9, 10, -10, 99, 100, 12345, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long value : values) {
+            assertEquals(Long.toString(value), string(Base10.encode(value)));
+            assertEquals(Long.toString(value).length(), Base10.length(value));
+        }
+    }
+
+    @Test
+    public void writeLongAtOffset() throws Exception {
+        byte[] dst = "xxxxxxxx".getBytes(charset);
+        assertEquals(6, Base10.write(dst, 2, -123));
+        assertEquals("xx-123xx", string(dst));
+    }
+
+    @Test
+    public void decodeLong() throws Exception {
+        long[] values = { 0, 1, -1, 10, 12345, -12345, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long value : values) {
+            ByteBuffer bytes = buffer(Long.toString(value));
+            assertEquals(value, Base10.decodeLong(bytes));
+            assertFalse(bytes.hasRemaining());
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void decodeLongOverflow() throws Exception {
+        Base10.decodeLong(buffer("9223372036854775808"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void decodeLongInvalid() throws Exception {
+        Base10.decodeLong(buffer("12a"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void decodeLongEmpty() throws Exception {
+        Base10.decodeLong(buffer("-"));
+    }
+
+    @Test
+    public void encodeDouble() throws Exception {
+        assertEquals("0", string(Base10.encode(0.0)));
+        assertEquals("-0", string(Base10.encode(-0.0)));
+        assertEquals("1", string(Base10.encode(1.0)));
+        assertEquals("-12", string(Base10.encode(-12.0)));
+        assertEquals("0.1", string(Base10.encode(0.1)));
+        assertEquals("0.05", string(Base10.encode(0.05)));
+        assertEquals("-1.25", string(Base10.encode(-1.25)));
+        assertEquals("3.14159", string(Base10.encode(3.14159)));
+        assertEquals("1.0E300", string(Base10.encode(1e300)));
+        assertEquals("Infinity", string(Base10.encode(Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    public void encodeDoubleRoundTrip() throws Exception {
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            double value = (random.nextInt(2000000) - 1000000) / Math.pow(10, random.nextInt(8));
+            assertEquals(value, Double.parseDouble(string(Base10.encode(value))), 0);
+            value = random.nextDouble() * 1000;
+            assertEquals(value, Double.parseDouble(string(Base10.encode(value))), 0);
+        }
+    }
+
+    @Test
+    public void decodeDouble() throws Exception {
+        String[] values = { "0", "1", "-1", "+1", "0.5", "-0.05", "3.14159", "1e3", "1.5E-3",
+                            "10.5", "123456789012345", "3.0000000000000004", ".5", "5." };
+        for (String value : values) {
+            ByteBuffer bytes = buffer(value);
+            assertEquals(Double.parseDouble(value), Base10.decodeDouble(bytes), 0);
+            assertFalse(bytes.hasRemaining());
+        }
+        assertEquals(Double.POSITIVE_INFINITY, Base10.decodeDouble(buffer("inf")), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, Base10.decodeDouble(buffer("-inf")), 0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void decodeDoubleInvalid() throws Exception {
+        Base10.decodeDouble(buffer("1.2.3"));
+    }
+
+    protected ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(charset));
+    }
+
+    protected String string(byte[] bytes) {
+        return new String(bytes, charset);
+    }
+}
@@ -0,0 +1,40 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertTrue;
+
+public abstract class AbstractAsyncCommandTest extends AbstractCommandTest {
+    protected Utf8StringCodec codec = new Utf8StringCodec();
+    protected RedisAsyncConnection<String, String> async;
+
+    private List<RedisAsyncConnection<String, String>> opened = new ArrayList<RedisAsyncConnection<String, String>>();
+
+    @Before
+    public final void openAsync() throws Exception {
+        async = connectAsync();
+    }
+
+    @After
+    public final void closeAsync() throws Exception {
+        for (RedisAsyncConnection<String, String> connection : opened) {
+            connection.close();
+        }
+    }
+
+    protected RedisAsyncConnection<String, String> connectAsync() {
+        RedisAsyncConnection<String, String> connection = client.connectAsync(codec);
+        opened.add(connection);
+        return connection;
+    }
+
+    protected void awaitAll(List<? extends Future<?>> futures) {
+        assertTrue(async.awaitAll(futures.toArray(new Future<?>[futures.size()])));
+    }
+}
@@ -2,9 +2,13 @@
 
 package com.lambdaworks.redis;
 
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import com.lambdaworks.redis.output.StatusOutput;
+import com.lambdaworks.redis.protocol.*;
 import org.junit.*;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +46,31 @@ public class AsyncConnectionTest extends AbstractCommandTest {
         assertEquals(list("1", "2"), lrange.get());
     }
 
+    @Test
+    public void dispatchBatch() throws Exception {
+        List<Command<String, String, ?>> cmds = new ArrayList<Command<String, String, ?>>();
+        for (int i = 0; i < 10; i++) {
+            CommandArgs<String, String> args = new CommandArgs<String, String>(new Utf8StringCodec());
+            args.addKey(key + i).addValue(value + i);
+            cmds.add(new Command<String, String, String>(CommandType.SET, new StatusOutput<String, String>(null), args, false));
+        }
+        async.dispatch(cmds);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("OK", cmds.get(i).get());
+            assertEquals(value + i, redis.get(key + i));
+        }
+    }
+
+    @Test
+    public void cancelDiscardsReply() throws Exception {
+        redis.set(key, value);
+        Future<List<String>> mget = async.mget(key, key);
+        mget.cancel(true);
+        assertTrue(mget.isCancelled());
+        assertEquals(value, async.get(key).get());
+    }
+
     @Test
     public void watch() throws Exception {
         assertEquals("OK", async.watch(key).get());
@@ -0,0 +1,104 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.bulk.BulkLoader;
+import org.junit.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BulkLoaderTest extends AbstractCommandTest {
+    protected BulkLoader loader;
+
+    @Before
+    public void createLoader() throws Exception {
+        loader = new BulkLoader(new InetSocketAddress(host, port), 64, 10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void loadFile() throws Exception {
+        File file = File.createTempFile("bulk", ".resp");
+        file.deleteOnExit();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                String k = "key" + i, v = "value" + i;
+                String cmd = "*3\r\n$3\r\nSET\r\n$" + k.length() + "\r\n" + k + "\r\n$" + v.length() + "\r\n" + v + "\r\n";
+                out.write(cmd.getBytes("UTF-8"));
+            }
+            out.write("*2\r\n$4\r\nINCR\r\n$4\r\nkey0\r\n".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        assertEquals(1001, loader.load(file));
+        assertEquals(1001, loader.getReplies());
+        assertEquals(1, loader.getErrors());
+        assertEquals(1, loader.getErrorMessages().size());
+        assertEquals(file.length(), loader.getBytes() - 41);
+        assertEquals("value0", redis.get("key0"));
+        assertEquals("value999", redis.get("key999"));
+    }
+
+    @Test
+    public void loadLines() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append("SET key").append(i).append(" value").append(i).append('\n');
+        }
+        sb.append("\n   \n");
+        sb.append("HSET hash field value\n");
+        sb.append("SET big ").append(repeat('x', 200)).append('\n');
+        sb.append("MSET a 1 b 2\n");
+
+        assertEquals(503, loader.loadLines(new StringReader(sb.toString())));
+        assertEquals(0, loader.getErrors());
+        assertEquals("value499", redis.get("key499"));
+        assertEquals("value", redis.hget("hash", "field"));
+        assertEquals(repeat('x', 200), redis.get("big"));
+        assertEquals(list("1", "2"), redis.mget("a", "b"));
+    }
+
+    @Test
+    public void authAndSelect() throws Exception {
+        new WithPasswordRequired() {
+            @Override
+            public void run(RedisClient client) {
+                loader.setPassword(passwd);
+                loader.setDatabase(1);
+                assertEquals(1, loader.loadLines(new StringReader("SET key value\n")));
+                assertEquals(0, loader.getErrors());
+                redis.select(1);
+                assertEquals("value", redis.get("key"));
+                redis.select(0);
+            }
+        };
+    }
+
+    @Test
+    public void authRejected() throws Exception {
+        loader.setPassword("invalid");
+        try {
+            loader.loadLines(new StringReader("SET key value\n"));
+            fail("AUTH was accepted");
+        } catch (RedisException e) {
+            assertNull(redis.get("key"));
+        }
+        assertEquals(0, loader.getErrors());
+    }
+
+    @Test(expected = RedisException.class)
+    public void connectionRefused() throws Exception {
+        new BulkLoader(new InetSocketAddress(host, 1), 64, 1, TimeUnit.SECONDS).loadLines(new StringReader("PING"));
+    }
+
+    private String repeat(char c, int count) {
+        char[] chars = new char[count];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
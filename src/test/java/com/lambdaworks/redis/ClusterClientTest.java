@@ -0,0 +1,228 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.cluster.*;
+import org.junit.*;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ClusterClientTest {
+    public static final String host = "127.0.0.1";
+    public static final int[] ports = { 7379, 7380, 7381 };
+
+    protected static List<Process> servers = new ArrayList<Process>();
+    protected static Map<Integer, RedisClient> nodeClients = new HashMap<Integer, RedisClient>();
+    protected static Map<Integer, RedisConnection<String, String>> nodes = new HashMap<Integer, RedisConnection<String, String>>();
+
+    protected RedisClusterClient client;
+    protected RedisConnection<String, String> redis;
+
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        File dir = File.createTempFile("lettuce-cluster", "");
+        assumeTrue(dir.delete() && dir.mkdir());
+
+        try {
+            for (int port : ports) {
+                ProcessBuilder builder = new ProcessBuilder("redis-server", "--port", "" + port,
+                        "--cluster-enabled", "yes", "--cluster-config-file", "nodes-" + port + ".conf");
+                servers.add(builder.directory(dir).redirectErrorStream(true).start());
+            }
+        } catch (java.io.IOException e) {
+            assumeTrue(false);
+        }
+
+        int slotsPerNode = SlotHash.SLOT_COUNT / ports.length + 1;
+        for (int i = 0; i < ports.length; i++) {
+            RedisConnection<String, String> node = connect(ports[i]);
+            node.clusterMeet(host, ports[0]);
+
+            int start = i * slotsPerNode;
+            int end   = Math.min(start + slotsPerNode, SlotHash.SLOT_COUNT);
+            int[] slots = new int[end - start];
+            for (int slot = start; slot < end; slot++) {
+                slots[slot - start] = slot;
+            }
+            node.clusterAddSlots(slots);
+        }
+
+        for (int port : ports) {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!nodes.get(port).clusterInfo().contains("cluster_state:ok")) {
+                assertTrue("cluster not ready", System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void stopCluster() throws Exception {
+        for (RedisClient client : nodeClients.values()) {
+            client.shutdown();
+        }
+        for (Process server : servers) {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    @Before
+    public void openConnection() throws Exception {
+        client = new RedisClusterClient(host + ":" + ports[0]);
+        redis = client.connect();
+    }
+
+    @After
+    public void closeConnection() throws Exception {
+        client.shutdown();
+    }
+
+    @Test
+    public void slotMap() throws Exception {
+        assertEquals(ports.length, client.getNodes().size());
+        assertEquals(host + ":" + ports[0], client.getNode(0));
+        assertEquals(host + ":" + ports[ports.length - 1], client.getNode(SlotHash.SLOT_COUNT - 1));
+    }
+
+    @Test
+    public void routeByKey() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertEquals("OK", redis.set("key" + i, "value" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            String key = "key" + i;
+            assertEquals("value" + i, redis.get(key));
+            assertEquals("value" + i, nodes.get(owner(key)).get(key));
+        }
+    }
+
+    @Test
+    public void hashTags() throws Exception {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        map.put("{user}.a", "a");
+        map.put("{user}.b", "b");
+        assertEquals("OK", redis.mset(map));
+        assertEquals(Arrays.asList("a", "b"), redis.mget("{user}.a", "{user}.b"));
+    }
+
+    @Test
+    public void moved() throws Exception {
+        String key = "moved";
+        int slot = SlotHash.getSlot(key.getBytes());
+        int source = owner(key);
+        int target = (source == ports[0]) ? ports[1] : ports[0];
+
+        try {
+            String targetId = nodes.get(target).clusterMyId();
+            for (int port : ports) {
+                nodes.get(port).clusterSetSlotNode(slot, targetId);
+            }
+
+            assertEquals(host + ":" + source, client.getNode(slot));
+            assertEquals("OK", redis.set(key, "value"));
+            assertEquals(host + ":" + target, client.getNode(slot));
+            assertEquals("value", nodes.get(target).get(key));
+        } finally {
+            nodes.get(target).del(key);
+            String sourceId = nodes.get(source).clusterMyId();
+            for (int port : ports) {
+                nodes.get(port).clusterSetSlotNode(slot, sourceId);
+            }
+        }
+    }
+
+    @Test
+    public void ask() throws Exception {
+        String key = "ask";
+        int slot = SlotHash.getSlot(key.getBytes());
+        int source = owner(key);
+        int target = (source == ports[0]) ? ports[1] : ports[0];
+        String sourceId = nodes.get(source).clusterMyId();
+        String targetId = nodes.get(target).clusterMyId();
+
+        try {
+            nodes.get(target).clusterSetSlotImporting(slot, sourceId);
+            nodes.get(source).clusterSetSlotMigrating(slot, targetId);
+
+            assertEquals("OK", redis.set(key, "value"));
+            assertEquals("value", redis.get(key));
+            assertEquals(host + ":" + source, client.getNode(slot));
+
+            RedisConnection<String, String> node = nodes.get(target);
+            node.asking();
+            assertEquals("value", node.get(key));
+        } finally {
+            RedisConnection<String, String> node = nodes.get(target);
+            node.asking();
+            node.del(key);
+            for (int port : ports) {
+                nodes.get(port).clusterSetSlotNode(slot, sourceId);
+            }
+        }
+    }
+
+    @Test
+    public void batch() throws Exception {
+        ClusterAsyncConnection<String, String> async = client.connectAsync();
+        ClusterBatch<String, String> batch = async.batch();
+
+        List<Future<String>> sets = new ArrayList<Future<String>>();
+        for (int i = 0; i < 300; i++) {
+            sets.add(batch.set("key" + i, "value" + i));
+        }
+        List<Future<String>> gets = new ArrayList<Future<String>>();
+        for (int i = 0; i < 300; i++) {
+            gets.add(batch.get("key" + i));
+        }
+
+        assertEquals(600, batch.size());
+        assertFalse(sets.get(0).isDone());
+
+        batch.flush();
+        assertEquals(0, batch.size());
+
+        for (int i = 0; i < 300; i++) {
+            assertEquals("OK", sets.get(i).get(1, TimeUnit.SECONDS));
+            assertEquals("value" + i, gets.get(i).get(1, TimeUnit.SECONDS));
+            assertEquals("value" + i, nodes.get(owner("key" + i)).get("key" + i));
+        }
+    }
+
+    @Test
+    public void keyless() throws Exception {
+        assertEquals("PONG", redis.ping());
+    }
+
+    @Test(expected = RedisException.class)
+    public void scanUnsupported() throws Exception {
+        redis.scan(ScanCursor.INITIAL);
+    }
+
+    protected int owner(String key) {
+        String node = client.getNode(SlotHash.getSlot(key.getBytes()));
+        return Integer.parseInt(node.substring(node.indexOf(':') + 1));
+    }
+
+    protected static RedisConnection<String, String> connect(int port) throws Exception {
+        RedisClient client = new RedisClient(host, port);
+        nodeClients.put(port, client);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        for (;;) {
+            try {
+                RedisConnection<String, String> connection = client.connect();
+                nodes.put(port, connection);
+                return connection;
+            } catch (RedisException e) {
+                assertTrue("redis-server not started", System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        }
+    }
+}
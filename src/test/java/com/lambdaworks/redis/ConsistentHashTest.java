@@ -0,0 +1,84 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.shard.ConsistentHash;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ConsistentHashTest {
+    protected List<String> nodes = Arrays.asList("a:6379", "b:6379", "c:6379", "d:6379");
+
+    @Test
+    public void empty() throws Exception {
+        ConsistentHash<String> ring = new ConsistentHash<String>(Collections.<String>emptyList());
+        assertNull(ring.get(key(1)));
+    }
+
+    @Test
+    public void deterministic() throws Exception {
+        ConsistentHash<String> one = new ConsistentHash<String>(nodes);
+        ConsistentHash<String> two = new ConsistentHash<String>(nodes);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(one.get(key(i)), two.get(key(i)));
+        }
+    }
+
+    @Test
+    public void distribution() throws Exception {
+        ConsistentHash<String> ring = new ConsistentHash<String>(nodes);
+        Map<String, Integer> counts = counts(ring, 100000);
+        assertEquals(nodes.size(), counts.size());
+        for (int count : counts.values()) {
+            assertTrue("uneven distribution " + counts, count > 15000 && count < 35000);
+        }
+    }
+
+    @Test
+    public void addNode() throws Exception {
+        ConsistentHash<String> before = new ConsistentHash<String>(nodes);
+        List<String> added = new ArrayList<String>(nodes);
+        added.add("e:6379");
+        ConsistentHash<String> after = new ConsistentHash<String>(added);
+
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            String node = after.get(key(i));
+            if (!node.equals(before.get(key(i)))) {
+                assertEquals("e:6379", node);
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > 1000 && moved < 3000);
+    }
+
+    @Test
+    public void removeNode() throws Exception {
+        ConsistentHash<String> before = new ConsistentHash<String>(nodes);
+        ConsistentHash<String> after = new ConsistentHash<String>(nodes.subList(0, 3));
+
+        for (int i = 0; i < 10000; i++) {
+            String node = before.get(key(i));
+            if (!node.equals("d:6379")) {
+                assertEquals(node, after.get(key(i)));
+            }
+        }
+    }
+
+    protected Map<String, Integer> counts(ConsistentHash<String> ring, int keys) {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < keys; i++) {
+            String node = ring.get(key(i));
+            Integer count = counts.get(node);
+            counts.put(node, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    protected byte[] key(int i) {
+        return ("key" + i).getBytes();
+    }
+}
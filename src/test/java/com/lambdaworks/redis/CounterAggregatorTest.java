@@ -0,0 +1,99 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.counter.CounterAggregator;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class CounterAggregatorTest extends AbstractAsyncCommandTest {
+    @Test
+    public void aggregate() throws Exception {
+        final CounterAggregator<String, String> counters = aggregator(1, TimeUnit.HOURS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        counters.incrby("key" + (i % 10), 1);
+                        counters.hincrby("hash", "field" + (i % 5), 2);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        executor.shutdown();
+
+        assertEquals(15, counters.size());
+        assertNull(redis.get("key0"));
+        counters.close();
+
+        assertEquals(15, counters.getCommands());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("4000", redis.get("key" + i));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals("16000", redis.hget("hash", "field" + i));
+        }
+    }
+
+    @Test
+    public void periodicFlush() throws Exception {
+        CounterAggregator<String, String> counters = aggregator(10, TimeUnit.MILLISECONDS);
+        counters.incrby(key, 5);
+        counters.incrby(key, -2);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"3".equals(redis.get(key))) {
+            assertTrue("not flushed", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(1, counters.getCommands());
+        counters.close();
+    }
+
+    @Test
+    public void retireIdle() throws Exception {
+        CounterAggregator<String, String> counters = aggregator(1, TimeUnit.HOURS);
+        counters.incrby(key, 1);
+        awaitAll(counters.flush());
+        assertEquals(1, counters.size());
+        assertTrue(counters.flush().isEmpty());
+        assertEquals(0, counters.size());
+        counters.incrby(key, 1);
+        awaitAll(counters.flush());
+        assertEquals("2", redis.get(key));
+        counters.close();
+    }
+
+    @Test
+    public void extremeDelta() throws Exception {
+        CounterAggregator<String, String> counters = aggregator(1, TimeUnit.HOURS);
+        counters.incrby(key, Long.MIN_VALUE);
+        counters.incrby(key, 1);
+        awaitAll(counters.flush());
+        assertEquals(String.valueOf(Long.MIN_VALUE + 1), redis.get(key));
+        counters.close();
+    }
+
+    @Test
+    public void errorReply() throws Exception {
+        CounterAggregator<String, String> counters = aggregator(1, TimeUnit.HOURS);
+        redis.set(key, value);
+        counters.incrby(key, 1);
+        counters.incrby("other", 1);
+        awaitAll(counters.flush());
+        assertEquals(1, counters.getErrors());
+        assertEquals("1", redis.get("other"));
+        counters.close();
+    }
+
+    protected CounterAggregator<String, String> aggregator(long interval, TimeUnit unit) {
+        return new CounterAggregator<String, String>(async, codec, interval, unit);
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.protocol.Endpoints;
+import org.junit.*;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class EndpointsTest extends AbstractCommandTest {
+    public static final int other = 7679;
+
+    @Test
+    public void parse() throws Exception {
+        Endpoints endpoints = new Endpoints("host1:7000", "host2", "[::1]:7001");
+        assertEquals(3, endpoints.size());
+        assertEquals(6379, endpoints.resolve(1).getPort());
+        assertEquals(7001, endpoints.resolve(2).getPort());
+        assertEquals(7000, endpoints.resolve(3).getPort());
+    }
+
+    @Test
+    public void resolveEachTime() throws Exception {
+        Endpoints endpoints = new Endpoints("localhost:6379", "unknown.invalid:6379");
+        InetSocketAddress addr = endpoints.resolve(0);
+        assertFalse(addr.isUnresolved());
+        assertNotSame(addr, endpoints.resolve(0));
+        assertTrue(endpoints.resolve(1).isUnresolved());
+    }
+
+    @Test
+    public void connectFirstAvailable() throws Exception {
+        RedisClient client = new RedisClient(new Endpoints("127.0.0.1:1", host + ":" + port));
+        try {
+            RedisConnection<String, String> connection = client.connect();
+            assertEquals("PONG", connection.ping());
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test(expected = RedisException.class)
+    public void noneAvailable() throws Exception {
+        RedisClient client = new RedisClient(new Endpoints("127.0.0.1:1", "127.0.0.1:2"));
+        try {
+            client.connect();
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void reconnectNextEndpoint() throws Exception {
+        File dir = File.createTempFile("lettuce-endpoints", "");
+        assumeTrue(dir.delete() && dir.mkdir());
+
+        Process server;
+        try {
+            server = new ProcessBuilder("redis-server", "--port", "" + other).directory(dir).redirectErrorStream(true).start();
+        } catch (java.io.IOException e) {
+            assumeTrue(false);
+            return;
+        }
+
+        RedisClient client = new RedisClient(new Endpoints("localhost:" + other, "localhost:" + port));
+        client.setDefaultTimeout(5, TimeUnit.SECONDS);
+        try {
+            RedisConnection<String, String> connection = null;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (connection == null) {
+                RedisClient probe = new RedisClient(host, other);
+                try {
+                    probe.connect().set(key, "other");
+                    connection = client.connect();
+                } catch (RedisException e) {
+                    assertTrue("server not started", System.currentTimeMillis() < deadline);
+                    Thread.sleep(100);
+                } finally {
+                    probe.shutdown();
+                }
+            }
+            redis.set(key, value);
+            assertEquals("other", connection.get(key));
+
+            server.destroy();
+            server.waitFor();
+
+            assertEquals(value, connection.get(key));
+        } finally {
+            client.shutdown();
+            server.destroy();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ExecutorDecodeTest extends AbstractCommandTest {
+    protected ExecutorService executor;
+    protected RedisClient decodingClient;
+    protected RecordingCodec codec;
+    protected RedisAsyncConnection<String, String> async;
+
+    @Before
+    public void openDecodingConnection() throws Exception {
+        executor = Executors.newFixedThreadPool(4, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "decoder");
+            }
+        });
+        decodingClient = new RedisClient(host, port);
+        decodingClient.setDecodeExecutor(executor);
+        codec = new RecordingCodec();
+        async = decodingClient.connectAsync(codec);
+    }
+
+    @After
+    public void closeDecodingConnection() throws Exception {
+        decodingClient.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void decodeOnExecutor() throws Exception {
+        RedisConnection<String, String> connection = new RedisConnection<String, String>(async);
+        connection.set(key, value);
+        assertEquals(value, connection.get(key));
+        assertEquals(list(value), codec.values);
+        assertEquals(set("decoder"), codec.threads);
+    }
+
+    @Test
+    public void completionOrder() throws Exception {
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 1000; i++) {
+            async.set(key + i, value + i);
+            futures.add(async.get(key + i));
+        }
+        assertTrue(async.awaitAll(futures.toArray(new Future<?>[futures.size()])));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(value + i, futures.get(i).get());
+            assertEquals(value + i, codec.values.get(i));
+        }
+    }
+
+    @Test
+    public void largeReplies() throws Exception {
+        char[] chars = new char[256 * 1024];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        async.set(key, large);
+
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(async.get(key));
+            futures.add(async.echo(value));
+        }
+
+        for (int i = 0; i < futures.size(); i += 2) {
+            assertEquals(large, futures.get(i).get());
+            assertEquals(value, futures.get(i + 1).get());
+        }
+    }
+
+    @Test
+    public void decodeError() throws Exception {
+        RedisConnection<String, String> connection = new RedisConnection<String, String>(async);
+        connection.set(key, "fail");
+        try {
+            connection.get(key);
+            fail("decode error not propagated");
+        } catch (RedisException e) {
+            assertTrue(e.getMessage().contains("decode failed"));
+        }
+        assertEquals("OK", connection.set(key, value));
+        assertEquals(value, connection.get(key));
+    }
+
+    public static class RecordingCodec extends Utf8StringCodec {
+        List<String> values = Collections.synchronizedList(new ArrayList<String>());
+        Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+        @Override
+        public String decodeValue(ByteBuffer bytes) {
+            threads.add(Thread.currentThread().getName());
+            String value = super.decodeValue(bytes);
+            if ("fail".equals(value)) throw new IllegalStateException("decode failed");
+            if (value.startsWith("value")) values.add(value);
+            return value;
+        }
+    }
+}
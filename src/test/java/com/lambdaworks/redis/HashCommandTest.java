@@ -5,6 +5,7 @@ package com.lambdaworks.redis;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -97,6 +98,37 @@ public class HashCommandTest extends AbstractCommandTest {
         assertEquals(list("1", "2"), redis.hmget(key, "one", "two"));
     }
 
+    @Test
+    public void hscan() throws Exception {
+        redis.hset(key, "one", "1");
+        redis.hset(key, "two", "2");
+        ScanCursor<KeyValue<String, String>> cursor = redis.hscan(key, ScanCursor.INITIAL);
+        assertTrue(cursor.isFinished());
+        assertEquals(2, cursor.items.size());
+        assertTrue(cursor.items.contains(kv("one", "1")));
+        assertTrue(cursor.items.contains(kv("two", "2")));
+
+        cursor = redis.hscan(key, ScanCursor.INITIAL, new ScanArgs().match("o*"));
+        assertEquals(list(kv("one", "1")), cursor.items);
+    }
+
+    @Test
+    public void hscanIterator() throws Exception {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < 50; i++) {
+            map.put("field" + i, "" + i);
+        }
+        redis.hmset(key, map);
+
+        Map<String, String> fields = new HashMap<String, String>();
+        Iterator<KeyValue<String, String>> iterator = redis.hscanIterator(key, new ScanArgs().count(5));
+        while (iterator.hasNext()) {
+            KeyValue<String, String> kv = iterator.next();
+            fields.put(kv.key, kv.value);
+        }
+        assertEquals(map, fields);
+    }
+
     @Test
     public void hset() throws Exception {
         assertEquals(true, redis.hset(key, "one", "1"));
@@ -0,0 +1,85 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.InterningCodec;
+import com.lambdaworks.redis.codec.RedisCodec;
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import com.lambdaworks.redis.output.KeyListOutput;
+import com.lambdaworks.redis.output.MapOutput;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static com.lambdaworks.redis.protocol.Charsets.buffer;
+import static org.junit.Assert.*;
+
+public class InterningCodecTest {
+    protected RedisCodec<String, String> codec = new InterningCodec<String, String>(new Utf8StringCodec(), 16, 8);
+
+    @Test
+    public void internKeys() throws Exception {
+        String a = codec.decodeKey(buffer("field"));
+        String b = codec.decodeKey(buffer("field"));
+        assertEquals("field", a);
+        assertSame(a, b);
+    }
+
+    @Test
+    public void consumeBytes() throws Exception {
+        ByteBuffer bytes = buffer("field");
+        codec.decodeKey(bytes);
+        assertFalse(bytes.hasRemaining());
+        bytes = buffer("field");
+        codec.decodeKey(bytes);
+        assertFalse(bytes.hasRemaining());
+    }
+
+    @Test
+    public void longKeysNotInterned() throws Exception {
+        String a = codec.decodeKey(buffer("long-field"));
+        String b = codec.decodeKey(buffer("long-field"));
+        assertEquals(a, b);
+        assertNotSame(a, b);
+    }
+
+    @Test
+    public void valuesNotInterned() throws Exception {
+        String a = codec.decodeValue(buffer("value"));
+        String b = codec.decodeValue(buffer("value"));
+        assertEquals(a, b);
+        assertNotSame(a, b);
+    }
+
+    @Test
+    public void collisions() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            String key = Integer.toString(i);
+            assertEquals(key, codec.decodeKey(buffer(key)));
+        }
+    }
+
+    @Test
+    public void mapOutput() throws Exception {
+        MapOutput<String, String> one = new MapOutput<String, String>(codec);
+        MapOutput<String, String> two = new MapOutput<String, String>(codec);
+        List<MapOutput<String, String>> outputs = new ArrayList<MapOutput<String, String>>();
+        outputs.add(one);
+        outputs.add(two);
+        for (MapOutput<String, String> output : outputs) {
+            output.set(buffer("field"));
+            output.set(buffer("value"));
+        }
+        assertSame(one.get().keySet().iterator().next(), two.get().keySet().iterator().next());
+    }
+
+    @Test
+    public void keyListOutput() throws Exception {
+        KeyListOutput<String, String> output = new KeyListOutput<String, String>(codec);
+        output.set(buffer("a"));
+        output.set(buffer("a"));
+        List<String> keys = output.get();
+        assertSame(keys.get(0), keys.get(1));
+    }
+}
@@ -6,11 +6,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
+import static com.lambdaworks.redis.ScanArgs.Builder.*;
 import static org.junit.Assert.*;
 
 public class KeyCommandTest extends AbstractCommandTest {
@@ -201,6 +199,41 @@ public class KeyCommandTest extends AbstractCommandTest {
         assertTrue(ttl <= 1000 && ttl >= 0);
     }
 
+    @Test
+    public void scan() throws Exception {
+        redis.set("one", "1");
+        redis.set("two", "2");
+        redis.set("three", "3");
+        ScanCursor<String> cursor = redis.scan(ScanCursor.INITIAL);
+        assertTrue(cursor.isFinished());
+        assertEquals(set("one", "two", "three"), new HashSet<String>(cursor.items));
+
+        cursor = redis.scan(ScanCursor.INITIAL, match("t*").count(1));
+        Set<String> keys = new HashSet<String>(cursor.items);
+        while (!cursor.isFinished()) {
+            cursor = redis.scan(cursor.cursor, match("t*").count(1));
+            keys.addAll(cursor.items);
+        }
+        assertEquals(set("two", "three"), keys);
+    }
+
+    @Test
+    public void scanIterator() throws Exception {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, value);
+        }
+        redis.mset(map);
+
+        Set<String> keys = new HashSet<String>();
+        Iterator<String> iterator = redis.scanIterator(count(7));
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        assertEquals(map.keySet(), keys);
+        assertFalse(redis.scanIterator(match("none*")).hasNext());
+    }
+
     @Test
     public void ttl() throws Exception {
         assertEquals(-1, (long) redis.ttl(key));
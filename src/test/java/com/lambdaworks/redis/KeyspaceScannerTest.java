@@ -0,0 +1,117 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.scan.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.lambdaworks.redis.ScanArgs.Builder.*;
+import static org.junit.Assert.*;
+
+public class KeyspaceScannerTest extends AbstractAsyncCommandTest {
+    protected List<RedisAsyncConnection<String, String>> connections;
+
+    @Before
+    public void openConnections() throws Exception {
+        connections = new ArrayList<RedisAsyncConnection<String, String>>();
+        connections.add(async);
+        connections.add(connectAsync());
+        connections.add(connectAsync());
+    }
+
+    @Test
+    public void scan() throws Exception {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < 200; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        redis.mset(map);
+        redis.expire("key7", 100);
+        redis.hset("hash", "field", value);
+
+        final Map<String, ScannedKey<String>> keys = new ConcurrentHashMap<String, ScannedKey<String>>();
+        KeyspaceScanner<String, String> scanner = new KeyspaceScanner<String, String>(connections, codec, 4);
+        long count = scanner.scan(count(10), EnumSet.allOf(KeyDetail.class), new KeyVisitor<String>() {
+            @Override
+            public void visit(ScannedKey<String> key) {
+                keys.put(key.key, key);
+            }
+        });
+        scanner.close();
+
+        assertEquals(201, count);
+        assertEquals(201, keys.size());
+        assertEquals(201, scanner.getScanned());
+        assertEquals(0, scanner.getFailures());
+        assertTrue(scanner.getPages() >= 20);
+        assertEquals(1.0, scanner.getProgress(), 0.0);
+        assertTrue(scanner.getRate() > 0);
+
+        assertEquals("string", keys.get("key1").type);
+        assertEquals("hash", keys.get("hash").type);
+        assertTrue(keys.get("key7").ttl > 0);
+        assertNotNull(keys.get("key1").dump);
+    }
+
+    @Test
+    public void scanMatchWithoutDetails() throws Exception {
+        redis.set("one", "1");
+        redis.set("two", "2");
+        redis.set("three", "3");
+
+        final Set<String> keys = Collections.synchronizedSet(new HashSet<String>());
+        KeyspaceScanner<String, String> scanner = new KeyspaceScanner<String, String>(connections, codec, 2);
+        scanner.scan(match("t*"), EnumSet.noneOf(KeyDetail.class), new KeyVisitor<String>() {
+            @Override
+            public void visit(ScannedKey<String> key) {
+                assertNull(key.type);
+                assertNull(key.ttl);
+                assertNull(key.dump);
+                keys.add(key.key);
+            }
+        });
+        scanner.close();
+
+        assertEquals(set("two", "three"), keys);
+    }
+
+    @Test
+    public void visitorFailures() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            redis.set("key" + i, value);
+        }
+
+        KeyspaceScanner<String, String> scanner = new KeyspaceScanner<String, String>(connections, codec, 2);
+        long count = scanner.scan(count(5), EnumSet.of(KeyDetail.TYPE), new KeyVisitor<String>() {
+            @Override
+            public void visit(ScannedKey<String> key) throws Exception {
+                if (key.key.endsWith("1")) throw new Exception("failed");
+            }
+        });
+
+        assertEquals(18, count);
+        assertEquals(2, scanner.getFailures());
+        assertEquals("failed", scanner.getFirstFailure().getMessage());
+
+        count = scanner.scan(count(5), EnumSet.noneOf(KeyDetail.class), new KeyVisitor<String>() {
+            @Override
+            public void visit(ScannedKey<String> key) {
+            }
+        });
+        scanner.close();
+
+        assertEquals(20, count);
+        assertEquals(20, scanner.getVisited());
+        assertEquals(0, scanner.getFailures());
+        assertNull(scanner.getFirstFailure());
+        assertEquals(1.0, scanner.getProgress(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noConnections() throws Exception {
+        new KeyspaceScanner<String, String>(new ArrayList<RedisAsyncConnection<String, String>>(), codec, 1);
+    }
+}
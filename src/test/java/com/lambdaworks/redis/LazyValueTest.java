@@ -0,0 +1,81 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LazyValueTest extends AbstractCommandTest {
+    protected CountingCodec codec;
+    protected RedisConnection<String, String> lazy;
+
+    @Before
+    public void openLazyConnection() throws Exception {
+        codec = new CountingCodec();
+        lazy  = client.connect(codec);
+    }
+
+    @After
+    public void closeLazyConnection() throws Exception {
+        lazy.close();
+    }
+
+    @Test
+    public void mgetLazy() throws Exception {
+        redis.set("one", "1");
+        redis.set("two", "2");
+        List<LazyValue<String>> values = lazy.mgetLazy("one", "missing", "two");
+        assertEquals(3, values.size());
+        assertNull(values.get(1));
+        assertEquals(0, codec.decoded.get());
+
+        assertFalse(values.get(2).isDecoded());
+        assertEquals("2", values.get(2).get());
+        assertTrue(values.get(2).isDecoded());
+        assertEquals(1, codec.decoded.get());
+
+        assertEquals("2", values.get(2).get());
+        assertEquals(1, codec.decoded.get());
+        assertFalse(values.get(0).isDecoded());
+    }
+
+    @Test
+    public void hmgetLazy() throws Exception {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        map.put("one", "1");
+        map.put("two", "2");
+        redis.hmset(key, map);
+        List<LazyValue<String>> values = lazy.hmgetLazy(key, "one", "two", "missing");
+        assertEquals("1", values.get(0).get());
+        assertEquals("2", values.get(1).get());
+        assertNull(values.get(2));
+    }
+
+    @Test
+    public void equality() throws Exception {
+        redis.set(key, value);
+        LazyValue<String> a = lazy.mgetLazy(key).get(0);
+        LazyValue<String> b = lazy.mgetLazy(key).get(0);
+        assertEquals(a, b);
+        assertEquals(value.hashCode(), a.hashCode());
+        assertEquals(value, a.toString());
+    }
+
+    public static class CountingCodec extends Utf8StringCodec {
+        AtomicInteger decoded = new AtomicInteger();
+
+        @Override
+        public String decodeValue(ByteBuffer bytes) {
+            decoded.incrementAndGet();
+            return super.decodeValue(bytes);
+        }
+    }
+}
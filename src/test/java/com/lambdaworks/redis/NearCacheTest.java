@@ -0,0 +1,272 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.cache.*;
+import com.lambdaworks.redis.pubsub.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class NearCacheTest extends AbstractAsyncCommandTest {
+    protected NearCache cache;
+    protected RedisConnection<String, String> cached;
+
+    @Before
+    public void openCache() throws Exception {
+        cache = new NearCache(100, 1, TimeUnit.MINUTES, EvictionPolicy.LRU);
+        cached = connect(cache);
+    }
+
+    @Test
+    public void get() throws Exception {
+        redis.set(key, value);
+        assertEquals(value, cached.get(key));
+        assertEquals(value, cached.get(key));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void hget() throws Exception {
+        redis.hset(key, "field", value);
+        assertEquals(value, cached.hget(key, "field"));
+        assertEquals(value, cached.hget(key, "field"));
+        assertNull(cached.hget(key, "other"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void nilNotCached() throws Exception {
+        assertNull(cached.get(key));
+        redis.set(key, value);
+        assertEquals(value, cached.get(key));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void localWriteInvalidates() throws Exception {
+        cached.set(key, value);
+        assertEquals(value, cached.get(key));
+        cached.set(key, "new");
+        assertEquals("new", cached.get(key));
+        cached.del("other", key);
+        assertNull(cached.get(key));
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    @Test
+    public void ttl() throws Exception {
+        cache = new NearCache(100, 10, TimeUnit.MILLISECONDS, EvictionPolicy.LRU);
+        RedisConnection<String, String> connection = connect(cache);
+        redis.set(key, value);
+        assertEquals(value, connection.get(key));
+        Thread.sleep(20);
+        assertEquals(value, connection.get(key));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        connection.close();
+    }
+
+    @Test
+    public void lruEviction() throws Exception {
+        cache = new NearCache(2, 0, TimeUnit.MILLISECONDS, EvictionPolicy.LRU);
+        RedisConnection<String, String> connection = connect(cache);
+        redis.mset(map("a", "1", "b", "2", "c", "3"));
+        connection.get("a");
+        connection.get("b");
+        connection.get("a");
+        connection.get("c");
+        assertEquals(1, cache.getEvictions());
+        long misses = cache.getMisses();
+        connection.get("a");
+        assertEquals(misses, cache.getMisses());
+        connection.get("b");
+        assertEquals(misses + 1, cache.getMisses());
+        connection.close();
+    }
+
+    @Test
+    public void lfuEviction() throws Exception {
+        cache = new NearCache(2, 0, TimeUnit.MILLISECONDS, EvictionPolicy.LFU);
+        RedisConnection<String, String> connection = connect(cache);
+        redis.mset(map("a", "1", "b", "2", "c", "3"));
+        connection.get("a");
+        connection.get("b");
+        for (int i = 0; i < 5; i++) {
+            connection.get("a");
+        }
+        connection.get("c");
+        assertEquals(1, cache.getEvictions());
+        long misses = cache.getMisses();
+        connection.get("a");
+        assertEquals(misses, cache.getMisses());
+        connection.close();
+    }
+
+    @Test
+    public void keyspaceInvalidation() throws Exception {
+        redis.configSet("notify-keyspace-events", "Kg$hxe");
+        RedisPubSubConnection<String, String> pubsub = client.connectPubSub();
+        try {
+            CountDownLatch subscribed = subscribed(pubsub);
+            cache.subscribeKeyspace(pubsub, codec, 0);
+            assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+            redis.set(key, value);
+            awaitInvalidated(key, value);
+            redis.set(key, "new");
+            awaitInvalidated(key, "new");
+            redis.del(key);
+            awaitInvalidated(key, null);
+            assertTrue(cache.getInvalidations() > 0);
+        } finally {
+            pubsub.close();
+            redis.configSet("notify-keyspace-events", "");
+        }
+    }
+
+    @Test
+    public void channelInvalidation() throws Exception {
+        RedisPubSubConnection<String, String> pubsub = client.connectPubSub();
+        try {
+            CountDownLatch subscribed = subscribed(pubsub);
+            cache.subscribe(pubsub, codec, "invalidate");
+            assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+            redis.set(key, value);
+            awaitInvalidated(key, value);
+            redis.set(key, "new");
+            redis.publish("invalidate", key);
+            awaitInvalidated(key, "new");
+        } finally {
+            pubsub.close();
+        }
+    }
+
+    @Test
+    public void offHeap() throws Exception {
+        OffHeapStorage storage = new OffHeapStorage(1024 * 1024, 64 * 1024);
+        cache = new NearCache(storage, 1, TimeUnit.MINUTES);
+        RedisConnection<String, String> connection = connect(cache);
+        redis.set(key, value);
+        redis.hset("hash", "field", value);
+
+        assertEquals(value, connection.get(key));
+        assertEquals(value, connection.get(key));
+        assertEquals(value, connection.hget("hash", "field"));
+        assertEquals(value, connection.hget("hash", "field"));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.size());
+        assertEquals(64 * 1024, storage.getAllocated());
+
+        connection.set(key, "new");
+        assertEquals("new", connection.get(key));
+        assertEquals(1, cache.getInvalidations());
+        connection.close();
+    }
+
+    @Test
+    public void offHeapEviction() throws Exception {
+        cache = new NearCache(new OffHeapStorage(4096, 1024), 0, TimeUnit.MILLISECONDS);
+        RedisConnection<String, String> connection = connect(cache);
+        char[] chars = new char[200];
+        Arrays.fill(chars, 'x');
+        String big = new String(chars);
+
+        for (int i = 0; i < 100; i++) {
+            redis.set("key" + i, big + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(big + i, connection.get("key" + i));
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.size() <= 4 * 1024 / 200);
+        assertEquals(100 - cache.getEvictions(), cache.size());
+
+        long hits = cache.getHits();
+        assertEquals(big + 99, connection.get("key99"));
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(big + 0, connection.get("key0"));
+        assertEquals(hits + 1, cache.getHits());
+        connection.close();
+    }
+
+    @Test
+    public void offHeapTtl() throws Exception {
+        cache = new NearCache(new OffHeapStorage(4096, 1024), 10, TimeUnit.MILLISECONDS);
+        RedisConnection<String, String> connection = connect(cache);
+        redis.set(key, value);
+        assertEquals(value, connection.get(key));
+        Thread.sleep(20);
+        assertEquals(value, connection.get(key));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.size());
+        connection.close();
+    }
+
+    @Test
+    public void offHeapIndex() throws Exception {
+        cache = new NearCache(new OffHeapStorage(16 * 1024 * 1024, 1024 * 1024), 0, TimeUnit.MILLISECONDS);
+        RedisConnection<String, String> connection = connect(cache);
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < 5000; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        redis.mset(map);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("value" + i, connection.get("key" + i));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            cache.invalidate(("key" + i).getBytes());
+        }
+        assertEquals(2500, cache.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("value" + i, connection.get("key" + i));
+        }
+        assertEquals(2500, cache.getHits());
+        assertEquals(5000, cache.size());
+        connection.close();
+    }
+
+    protected CountDownLatch subscribed(RedisPubSubConnection<String, String> pubsub) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        pubsub.addListener(new RedisPubSubAdapter<String, String>() {
+            @Override
+            public void subscribed(String channel, long count) {
+                latch.countDown();
+            }
+
+            @Override
+            public void psubscribed(String pattern, long count) {
+                latch.countDown();
+            }
+        });
+        return latch;
+    }
+
+    protected void awaitInvalidated(String key, String value) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (;;) {
+            String current = cached.get(key);
+            if (value == null ? current == null : value.equals(current)) return;
+            assertTrue("not invalidated", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    protected RedisConnection<String, String> connect(NearCache cache) {
+        return new RedisConnection<String, String>(
+                new NearCacheAsyncConnection<String, String>(cache, connectAsync(), codec, 60, TimeUnit.SECONDS));
+    }
+
+    protected Map<String, String> map(String... kv) {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < kv.length; i += 2) {
+            map.put(kv[i], kv[i + 1]);
+        }
+        return map;
+    }
+}
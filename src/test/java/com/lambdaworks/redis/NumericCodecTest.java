@@ -0,0 +1,50 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.DoubleValueCodec;
+import com.lambdaworks.redis.codec.LongValueCodec;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NumericCodecTest extends AbstractCommandTest {
+    @Test
+    public void longValues() throws Exception {
+        RedisConnection<String, Long> connection = client.connect(new LongValueCodec());
+        connection.set(key, Long.MIN_VALUE);
+        assertEquals(Long.MIN_VALUE, (long) connection.get(key));
+        connection.set(key, 42L);
+        assertEquals(43L, (long) connection.incr(key));
+        assertEquals(43L, (long) connection.get(key));
+        connection.close();
+    }
+
+    @Test
+    public void doubleValues() throws Exception {
+        RedisConnection<String, Double> connection = client.connect(new DoubleValueCodec());
+        connection.set(key, 1.5);
+        assertEquals(1.5, connection.get(key), 0);
+        connection.incrbyfloat(key, 0.25);
+        assertEquals(1.75, connection.get(key), 0);
+        connection.close();
+    }
+
+    @Test
+    public void invalidValues() throws Exception {
+        redis.set(key, value);
+        RedisConnection<String, Long> connection = client.connect(new LongValueCodec());
+        assertNull(connection.get(key));
+        connection.close();
+    }
+
+    @Test
+    public void numericArgs() throws Exception {
+        redis.zadd(key, 0.1, "a", -1.25, "b", 1e300, "c");
+        assertEquals(list("b", "a", "c"), redis.zrange(key, 0, -1));
+        assertEquals(0.1, redis.zscore(key, "a"), 0);
+        assertEquals(-1.25, redis.zscore(key, "b"), 0);
+        redis.set("n", "0");
+        assertEquals(Long.MAX_VALUE, (long) redis.incrby("n", Long.MAX_VALUE));
+    }
+}
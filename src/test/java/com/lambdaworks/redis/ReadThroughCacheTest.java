@@ -0,0 +1,132 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.cache.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReadThroughCacheTest extends AbstractAsyncCommandTest {
+    protected AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void readThrough() throws Exception {
+        ReadThroughCache<String, String> cache = cache(new Counting(), 10, 1, TimeUnit.SECONDS);
+        assertEquals("value1", cache.get(key));
+        assertEquals("value1", redis.get(key));
+        assertTrue(redis.pttl(key) > 9000);
+        assertEquals("value1", cache.get(key));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getRefreshes());
+        cache.close();
+    }
+
+    @Test
+    public void refreshAhead() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ReadThroughCache<String, String> cache = cache(new Counting() {
+            @Override
+            public String load(String key) throws Exception {
+                if (loads.get() > 0) release.await();
+                return super.load(key);
+            }
+        }, 2000, 1950, TimeUnit.MILLISECONDS);
+
+        assertEquals("value1", cache.get(key));
+        Thread.sleep(100);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value1", cache.get(key));
+        }
+        assertEquals(1, cache.getRefreshes());
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"value2".equals(redis.get(key))) {
+            assertTrue("not refreshed", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(2, loads.get());
+        assertTrue(redis.pttl(key) > 1950);
+        cache.close();
+    }
+
+    @Test
+    public void singleLoad() throws Exception {
+        final ReadThroughCache<String, String> cache = cache(new Counting() {
+            @Override
+            public String load(String key) throws Exception {
+                Thread.sleep(100);
+                return super.load(key);
+            }
+        }, 10, 1, TimeUnit.SECONDS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return cache.get(key);
+                }
+            }));
+        }
+        for (Future<String> future : futures) {
+            assertEquals("value1", future.get());
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        cache.close();
+    }
+
+    @Test
+    public void nullNotStored() throws Exception {
+        ReadThroughCache<String, String> cache = cache(new CacheLoader<String, String>() {
+            @Override
+            public String load(String key) {
+                loads.incrementAndGet();
+                return null;
+            }
+        }, 10, 1, TimeUnit.SECONDS);
+        assertNull(cache.get(key));
+        assertNull(cache.get(key));
+        assertEquals(2, loads.get());
+        assertNull(redis.get(key));
+        cache.close();
+    }
+
+    @Test
+    public void loaderFailure() throws Exception {
+        ReadThroughCache<String, String> cache = cache(new CacheLoader<String, String>() {
+            @Override
+            public String load(String key) throws Exception {
+                throw new IllegalStateException("oops");
+            }
+        }, 10, 1, TimeUnit.SECONDS);
+        try {
+            cache.get(key);
+            fail("exception not thrown");
+        } catch (RedisException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, cache.getFailures());
+        cache.close();
+    }
+
+    protected ReadThroughCache<String, String> cache(CacheLoader<String, String> loader, long ttl, long refresh, TimeUnit unit) {
+        return new ReadThroughCache<String, String>(async, codec, loader, ttl, refresh, unit);
+    }
+
+    class Counting implements CacheLoader<String, String> {
+        @Override
+        public String load(String key) throws Exception {
+            return "value" + loads.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.protocol.*;
+import org.junit.*;
+
+import java.io.File;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ReconnectTest extends AbstractCommandTest {
+    public static final int other = 7681;
+
+    @Test
+    public void metrics() throws Exception {
+        RedisClient client = new RedisClient(host, port);
+        client.setReconnectStrategy(new ExponentialBackoff(200, 200, TimeUnit.MILLISECONDS, 0, false));
+        try {
+            RedisConnection<String, String> connection = client.connect();
+            RedisAsyncConnection<String, String> async = client.connectAsync();
+            connection.set(key, value);
+            async.quit();
+            Thread.sleep(50);
+            Future<String> get = async.get(key);
+            assertEquals(value, get.get(5, TimeUnit.SECONDS));
+
+            ReconnectMetrics metrics = client.getReconnectMetrics();
+            assertEquals(1, metrics.getReconnects());
+            assertEquals(1, metrics.getReplayedCommands());
+            assertTrue(metrics.getMaxReconnectTime(TimeUnit.MILLISECONDS) >= 150);
+            assertEquals(metrics.getLastReconnectTime(TimeUnit.NANOSECONDS), metrics.getTotalReconnectTime(TimeUnit.NANOSECONDS));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void giveUp() throws Exception {
+        File dir = File.createTempFile("lettuce-reconnect", "");
+        assumeTrue(dir.delete() && dir.mkdir());
+
+        Process server;
+        try {
+            server = new ProcessBuilder("redis-server", "--port", "" + other).directory(dir).redirectErrorStream(true).start();
+        } catch (java.io.IOException e) {
+            assumeTrue(false);
+            return;
+        }
+
+        RedisClient client = new RedisClient(host, other);
+        client.setReconnectStrategy(new ExponentialBackoff(10, 10, TimeUnit.MILLISECONDS, 3, true));
+        try {
+            RedisAsyncConnection<String, String> connection = null;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (connection == null) {
+                try {
+                    connection = client.connectAsync();
+                } catch (RedisException e) {
+                    assertTrue("server not started", System.currentTimeMillis() < deadline);
+                    Thread.sleep(100);
+                }
+            }
+
+            server.destroy();
+            server.waitFor();
+
+            Future<String> get = connection.get(key);
+            get.get(5, TimeUnit.SECONDS);
+            assertEquals(3, client.getReconnectMetrics().getFailedAttempts());
+            assertEquals(0, client.getReconnectMetrics().getReconnects());
+
+            try {
+                connection.get(key);
+                fail("connection not closed");
+            } catch (RedisException e) {
+                assertEquals("Connection is closed", e.getMessage());
+            }
+        } finally {
+            client.shutdown();
+            server.destroy();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import com.lambdaworks.redis.output.StatusOutput;
+import com.lambdaworks.redis.protocol.*;
+import com.lambdaworks.redis.replica.*;
+import org.junit.*;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ReplicaClientTest {
+    public static final String host = "127.0.0.1";
+    public static final int master = 7479;
+    public static final int[] replicas = { 7480, 7481 };
+
+    protected static List<Process> servers = new ArrayList<Process>();
+    protected static Map<Integer, RedisClient> nodeClients = new HashMap<Integer, RedisClient>();
+    protected static Map<Integer, RedisConnection<String, String>> nodes = new HashMap<Integer, RedisConnection<String, String>>();
+
+    protected MasterReplicaClient client;
+    protected RedisConnection<String, String> redis;
+
+    @BeforeClass
+    public static void startServers() throws Exception {
+        File dir = File.createTempFile("lettuce-replica", "");
+        assumeTrue(dir.delete() && dir.mkdir());
+
+        try {
+            servers.add(start(dir, "--port", "" + master));
+            connect(master);
+            for (int port : replicas) {
+                servers.add(start(dir, "--port", "" + port, "--slaveof", host, "" + master));
+            }
+        } catch (java.io.IOException e) {
+            assumeTrue(false);
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!nodes.get(master).info("replication").contains("connected_slaves:" + replicas.length)) {
+            assertTrue("replicas not connected", System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
+        for (int port : replicas) {
+            connect(port);
+        }
+    }
+
+    @AfterClass
+    public static void stopServers() throws Exception {
+        for (RedisClient client : nodeClients.values()) {
+            client.shutdown();
+        }
+        for (Process server : servers) {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    @Before
+    public void openConnection() throws Exception {
+        client = new MasterReplicaClient(host, master);
+        redis = client.connect();
+        redis.flushall();
+    }
+
+    @After
+    public void closeConnection() throws Exception {
+        client.shutdown();
+    }
+
+    @Test
+    public void discoverReplicas() throws Exception {
+        Set<String> found = new HashSet<String>();
+        for (Replica replica : client.getReplicas()) {
+            found.add(replica.node);
+        }
+        assertEquals(new HashSet<String>(Arrays.asList(host + ":" + replicas[0], host + ":" + replicas[1])), found);
+    }
+
+    @Test
+    public void readsFromReplicas() throws Exception {
+        client.setReadPolicy(ReadPolicy.ROUND_ROBIN);
+        redis.set("key", "value");
+        awaitReplicated("key", "value");
+
+        long masterBefore = processed(master);
+        long replicasBefore = processed(replicas[0]) + processed(replicas[1]);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value", redis.get("key"));
+        }
+        assertEquals(masterBefore + 1, processed(master));
+        assertEquals(replicasBefore + 10 + 2, processed(replicas[0]) + processed(replicas[1]));
+    }
+
+    @Test
+    public void masterPolicy() throws Exception {
+        client.setReadPolicy(ReadPolicy.MASTER);
+        redis.set("key", "value");
+        long before = processed(master);
+        assertEquals("value", redis.get("key"));
+        assertEquals(before + 2, processed(master));
+    }
+
+    @Test
+    public void writesToMaster() throws Exception {
+        assertEquals("OK", redis.set("key", "value"));
+        assertEquals("value", nodes.get(master).get("key"));
+        awaitReplicated("key", "value");
+    }
+
+    @Test
+    public void lowestLatency() throws Exception {
+        client.setReadPolicy(ReadPolicy.LOWEST_LATENCY);
+        for (int i = 0; i < 10; i++) {
+            redis.get("key");
+        }
+        for (Replica replica : client.getReplicas()) {
+            assertTrue(replica.getLatency() >= 0);
+        }
+    }
+
+    @Test
+    public void powerOfTwoStats() throws Exception {
+        client.setReadPolicy(ReadPolicy.POWER_OF_TWO);
+        redis.set("key", "value");
+        awaitReplicated("key", "value");
+
+        long before = 0;
+        for (Replica replica : client.getReplicas()) {
+            before += replica.getCompleted();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value", redis.get("key"));
+        }
+
+        long completed = 0;
+        for (Replica replica : client.getReplicas()) {
+            assertTrue(replica.getCompleted() == 0 || replica.getLatency() > 0);
+            assertEquals(0, replica.getInFlight());
+            completed += replica.getCompleted();
+        }
+        assertEquals(100, completed - before);
+    }
+
+    @Test
+    public void hedgeSlowReplica() throws Exception {
+        HedgePolicy hedge = new HedgePolicy(99, 20, TimeUnit.MILLISECONDS);
+        client.setHedgePolicy(hedge);
+        redis.set("key", "value");
+        awaitReplicated("key", "value");
+
+        RedisAsyncConnection<String, String> slow = nodeClients.get(replicas[0]).connectAsync();
+        CommandArgs<String, String> args = new CommandArgs<String, String>(new Utf8StringCodec()).add("SLEEP").add(1);
+        Future<String> sleep = slow.dispatch(CommandType.DEBUG, new StatusOutput<String, String>(new Utf8StringCodec()), args);
+        Thread.sleep(50);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("value", redis.get("key"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 500);
+        assertTrue(hedge.getHedged() > 0);
+        assertTrue(hedge.getWon() > 0);
+
+        assertEquals("OK", sleep.get());
+        slow.close();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("value", redis.get("key"));
+        }
+    }
+
+    @Test
+    public void readOnlyCommands() throws Exception {
+        assertTrue(CommandType.GET.isReadOnly());
+        assertTrue(CommandType.HGETALL.isReadOnly());
+        assertFalse(CommandType.SET.isReadOnly());
+        assertFalse(CommandType.EVAL.isReadOnly());
+        assertFalse(CommandType.BLPOP.isReadOnly());
+        assertFalse(CommandType.SCAN.isReadOnly());
+        assertFalse(CommandType.HSCAN.isReadOnly());
+    }
+
+    @Test(expected = RedisException.class)
+    public void replicaRejectsWrites() throws Exception {
+        nodes.get(replicas[0]).set("key", "value");
+    }
+
+    protected void awaitReplicated(String key, String value) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (int port : replicas) {
+            while (!value.equals(nodes.get(port).get(key))) {
+                assertTrue("not replicated", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    protected static long processed(int port) {
+        String info = nodes.get(port).info("stats");
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith("total_commands_processed:")) {
+                return Long.parseLong(line.substring(line.indexOf(':') + 1));
+            }
+        }
+        throw new AssertionError("total_commands_processed missing");
+    }
+
+    protected static Process start(File dir, String... args) throws java.io.IOException {
+        List<String> command = new ArrayList<String>();
+        command.add("redis-server");
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).directory(dir).redirectErrorStream(true).start();
+    }
+
+    protected static RedisConnection<String, String> connect(int port) throws Exception {
+        RedisClient client = new RedisClient(host, port);
+        client.setDefaultTimeout(5, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                RedisConnection<String, String> connection = client.connect();
+                nodeClients.put(port, client);
+                nodes.put(port, connection);
+                return connection;
+            } catch (RedisException e) {
+                assertTrue("server not started", System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        }
+    }
+}
@@ -2,12 +2,14 @@
 
 package com.lambdaworks.redis;
 
+import com.lambdaworks.redis.output.IntegerOutput;
+import com.lambdaworks.redis.protocol.CommandOutput;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import static com.lambdaworks.redis.ScriptOutputType.*;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class ScriptingCommandTest extends AbstractCommandTest {
     @Rule
@@ -90,4 +92,56 @@ public class ScriptingCommandTest extends AbstractCommandTest {
             async.close();
         }
     }
+
+    @Test
+    public void scriptHandle() throws Exception {
+        redis.scriptFlush();
+        Script<String> script = redis.script("return {KEYS[1], ARGV[1]}");
+        assertEquals(redis.digest(script.getSource()), script.getDigest());
+        assertSame(script, redis.script(script.getSource()));
+        assertEquals(list(true), redis.scriptExists(script.getDigest()));
+        assertEquals(list("one", "a"), redis.evalsha(script, MULTI, new String[] { "one" }, "a"));
+    }
+
+    @Test
+    public void scriptHandleNoScript() throws Exception {
+        Script<String> script = redis.script("return 1 + 1");
+        redis.scriptFlush();
+        assertEquals(2L, redis.evalsha(script, INTEGER));
+        assertEquals(list(true), redis.scriptExists(script.getDigest()));
+        assertEquals(2L, redis.evalsha(script, INTEGER));
+        exception.expectMessage("ERR");
+        redis.evalsha(redis.script("return {err='ERR oops'}"), STATUS);
+    }
+
+    @Test
+    public void scriptHandleReloaded() throws Exception {
+        RedisConnection<String, String> connection = client.connect();
+        try {
+            Script<String> script = connection.script("return 'reloaded'");
+            redis.scriptFlush();
+            assertEquals(list(false), redis.scriptExists(script.getDigest()));
+            connection.quit();
+            assertEquals(list(true), connection.scriptExists(script.getDigest()));
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void scriptFallbackOnClosedConnection() throws Exception {
+        RedisAsyncConnection<String, String> connection = client.connectAsync();
+        Script<String> script = redis.script("return 1 + 1");
+        connection.close();
+
+        CommandOutput<String, String, Long> output = new IntegerOutput<String, String>(connection.codec);
+        ScriptCommand<String, String, Long> cmd = new ScriptCommand<String, String, Long>(
+                connection, script, output, new String[0], new String[0]);
+        cmd.bind(connection);
+        cmd.getOutput().setError("NOSCRIPT No matching script. Please use EVAL.");
+        cmd.complete();
+
+        assertTrue(cmd.isDone());
+        assertTrue(output.getError().startsWith("NOSCRIPT"));
+    }
 }
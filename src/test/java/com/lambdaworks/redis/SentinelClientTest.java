@@ -0,0 +1,133 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.sentinel.RedisSentinelClient;
+import org.junit.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class SentinelClientTest {
+    public static final String host = "127.0.0.1";
+    public static final String masterName = "mymaster";
+    public static final int master = 7579;
+    public static final int replica = 7580;
+    public static final int sentinel = 26579;
+
+    protected static List<Process> servers = new ArrayList<Process>();
+    protected static RedisClient sentinelClient;
+    protected static RedisConnection<String, String> sentinelConnection;
+
+    protected RedisSentinelClient client;
+
+    @BeforeClass
+    public static void startServers() throws Exception {
+        File dir = File.createTempFile("lettuce-sentinel", "");
+        assumeTrue(dir.delete() && dir.mkdir());
+
+        PrintWriter conf = new PrintWriter(new File(dir, "sentinel.conf"), "UTF-8");
+        conf.println("port " + sentinel);
+        conf.println("sentinel monitor " + masterName + " " + host + " " + master + " 1");
+        conf.println("sentinel down-after-milliseconds " + masterName + " 1000");
+        conf.println("sentinel failover-timeout " + masterName + " 2000");
+        conf.close();
+
+        try {
+            servers.add(start(dir, "--port", "" + master));
+            servers.add(start(dir, "--port", "" + replica, "--slaveof", host, "" + master));
+            servers.add(start(dir, "sentinel.conf", "--sentinel", "--port", "" + sentinel));
+        } catch (IOException e) {
+            assumeTrue(false);
+        }
+
+        sentinelClient = new RedisClient(host, sentinel);
+        sentinelClient.setDefaultTimeout(5, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (sentinelConnection == null) {
+            try {
+                sentinelConnection = sentinelClient.connect();
+            } catch (RedisException e) {
+                assertTrue("sentinel not started", System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void stopServers() throws Exception {
+        if (sentinelClient != null) sentinelClient.shutdown();
+        for (Process server : servers) {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+
+    @Before
+    public void createClient() throws Exception {
+        client = new RedisSentinelClient(masterName, host + ":1", host + ":" + sentinel);
+        client.setDefaultTimeout(5, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void shutdownClient() throws Exception {
+        client.shutdown();
+    }
+
+    @Test(expected = RedisException.class)
+    public void unknownMaster() throws Exception {
+        new RedisSentinelClient("unknown", host + ":" + sentinel).getMaster();
+    }
+
+    @Test
+    public void failover() throws Exception {
+        assertEquals(host + ":" + master, client.getMaster());
+
+        RedisConnection<String, String> redis = client.connect();
+        RedisAsyncConnection<String, String> async = client.connectAsync();
+        assertEquals("OK", redis.set("key", "value"));
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (true) {
+            try {
+                assertEquals("OK", sentinelConnection.sentinelFailover(masterName));
+                break;
+            } catch (RedisException e) {
+                assertTrue("failover not started", System.currentTimeMillis() < deadline);
+                Thread.sleep(250);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        while (!client.getMaster().equals(host + ":" + replica)) {
+            assertTrue("failover not detected", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        while (true) {
+            try {
+                assertEquals("OK", redis.set("key", "failover"));
+                assertEquals("OK", async.set("key", "failover").get());
+                break;
+            } catch (RedisException e) {
+                assertTrue("writes not re-pointed", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+        }
+
+        assertTrue(redis.info("replication").contains("role:master"));
+        assertEquals(1, client.getFailovers());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    protected static Process start(File dir, String... args) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add("redis-server");
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).directory(dir).redirectErrorStream(true).start();
+    }
+}
@@ -2,6 +2,8 @@
 
 package com.lambdaworks.redis;
 
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import org.junit.Test;
 
@@ -111,6 +113,31 @@ public class SetCommandTest extends AbstractCommandTest {
         assertEquals(set(), redis.smembers(key));
     }
 
+    @Test
+    public void sscan() throws Exception {
+        redis.sadd(key, "a", "b", "c");
+        ScanCursor<String> cursor = redis.sscan(key, ScanCursor.INITIAL);
+        assertTrue(cursor.isFinished());
+        assertEquals(set("a", "b", "c"), new HashSet<String>(cursor.items));
+        assertTrue(redis.sscan("none", ScanCursor.INITIAL).items.isEmpty());
+    }
+
+    @Test
+    public void sscanIterator() throws Exception {
+        Set<String> members = new HashSet<String>();
+        for (int i = 0; i < 50; i++) {
+            members.add("m" + i);
+        }
+        redis.sadd(key, members.toArray(new String[members.size()]));
+
+        Set<String> scanned = new HashSet<String>();
+        Iterator<String> iterator = redis.sscanIterator(key, new ScanArgs().count(3));
+        while (iterator.hasNext()) {
+            scanned.add(iterator.next());
+        }
+        assertEquals(members, scanned);
+    }
+
     @Test
     public void sunion() throws Exception {
         redis.sadd("key1", "a", "b", "c", "d");
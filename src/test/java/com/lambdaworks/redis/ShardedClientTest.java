@@ -0,0 +1,178 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import com.lambdaworks.redis.output.StatusOutput;
+import com.lambdaworks.redis.protocol.*;
+import com.lambdaworks.redis.shard.GatherCommand;
+import com.lambdaworks.redis.shard.ShardedAsyncConnection;
+import com.lambdaworks.redis.shard.ShardedRedisClient;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ShardedClientTest extends AbstractCommandTest {
+    protected ShardedRedisClient sharded;
+    protected ShardedAsyncConnection<String, String> async;
+
+    @Before
+    public void openShardedConnection() throws Exception {
+        sharded = new ShardedRedisClient(host + ":" + port, "127.0.0.1:" + port);
+        async = sharded.connectAsync();
+    }
+
+    @After
+    public void shutdownShardedClient() throws Exception {
+        sharded.shutdown();
+    }
+
+    @Test
+    public void routeByKey() throws Exception {
+        RedisConnection<String, String> connection = new RedisConnection<String, String>(async);
+        Set<RedisAsyncConnection<String, String>> used = new HashSet<RedisAsyncConnection<String, String>>();
+        for (int i = 0; i < 100; i++) {
+            assertEquals("OK", connection.set(key + i, value + i));
+            used.add(async.getConnection(key + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(value + i, connection.get(key + i));
+        }
+        assertEquals(2, used.size());
+    }
+
+    @Test
+    public void scatterGather() throws Exception {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        String[] keys = new String[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key + i;
+            map.put(keys[i], value + i);
+        }
+
+        Future<String> mset = async.mset(map);
+        assertTrue(mset instanceof GatherCommand);
+        assertEquals("OK", mset.get());
+
+        String[] missing = Arrays.copyOf(keys, keys.length + 1);
+        missing[keys.length] = "missing";
+        List<String> values = async.mget(missing).get();
+        assertEquals(keys.length + 1, values.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(value + i, values.get(i));
+        }
+        assertNull(values.get(keys.length));
+
+        assertEquals(100, (long) async.del(missing).get());
+        assertEquals(0, (long) async.del(keys).get());
+    }
+
+    @Test
+    public void scatterGatherSync() throws Exception {
+        RedisConnection<String, String> connection = new RedisConnection<String, String>(async);
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < 20; i++) {
+            map.put(key + i, value + i);
+        }
+        assertEquals("OK", connection.mset(map));
+        assertEquals(new ArrayList<String>(map.values()), connection.mget(map.keySet().toArray(new String[20])));
+        assertEquals(20, (long) connection.del(map.keySet().toArray(new String[20])));
+    }
+
+    @Test
+    public void nodeOrder() throws Exception {
+        assertEquals(list(host + ":" + port, "127.0.0.1:" + port), sharded.getNodes());
+        sharded.addNode("127.0.0.2", port);
+        sharded.removeNode(host, port);
+        assertEquals(list("127.0.0.1:" + port, "127.0.0.2:" + port), sharded.getNodes());
+    }
+
+    @Test
+    public void batch() throws Exception {
+        Utf8StringCodec codec = new Utf8StringCodec();
+        List<Command<String, String, String>> cmds = new ArrayList<Command<String, String, String>>();
+        for (int i = 0; i < 100; i++) {
+            CommandArgs<String, String> args = new CommandArgs<String, String>(codec).addKey(key + i).addValue(value + i);
+            cmds.add(new Command<String, String, String>(CommandType.SET, new StatusOutput<String, String>(codec), args, false));
+        }
+        async.dispatch(cmds);
+        for (Command<String, String, String> cmd : cmds) {
+            assertEquals("OK", cmd.get(5, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(value + i, async.get(key + i).get());
+        }
+    }
+
+    @Test
+    public void keylessCommand() throws Exception {
+        assertEquals("PONG", async.ping().get());
+    }
+
+    @Test
+    public void authAndSelect() throws Exception {
+        new WithPasswordRequired() {
+            @Override
+            protected void run(RedisClient client) throws Exception {
+                assertEquals("OK", async.auth(passwd));
+                assertEquals("OK", async.select(0));
+                assertEquals("OK", async.set(key, value).get());
+            }
+        };
+    }
+
+    @Test
+    public void removeNode() throws Exception {
+        List<RedisAsyncConnection<String, String>> before = new ArrayList<RedisAsyncConnection<String, String>>();
+        for (int i = 0; i < 100; i++) {
+            before.add(async.getConnection(key + i));
+        }
+
+        sharded.removeNode("127.0.0.1", port);
+
+        RedisAsyncConnection<String, String> remaining = async.getConnection(key);
+        int moved = 0;
+        for (int i = 0; i < 100; i++) {
+            assertSame(remaining, async.getConnection(key + i));
+            if (before.get(i) != remaining) moved++;
+        }
+        assertTrue(moved > 0 && moved < 100);
+
+        assertEquals("OK", async.set(key, value).get());
+        assertEquals(value, async.get(key).get());
+    }
+
+    @Test
+    public void crossNodeKeysRejected() throws Exception {
+        String other = key;
+        for (int i = 0; async.getConnection(other) == async.getConnection(key); i++) {
+            other = key + i;
+        }
+        try {
+            async.sunion(key, other);
+            fail("cross-node SUNION not rejected");
+        } catch (RedisException e) {
+            assertTrue(e.getMessage().contains("SUNION"));
+        }
+        assertNotNull(async.sunion(key, key));
+    }
+
+    @Test(expected = RedisException.class)
+    public void multiUnsupported() throws Exception {
+        async.multi();
+    }
+
+    @Test(expected = RedisException.class)
+    public void scanUnsupported() throws Exception {
+        async.scanIterator(new ScanArgs()).hasNext();
+    }
+
+    @Test(expected = RedisException.class)
+    public void closed() throws Exception {
+        async.close();
+        async.get(key);
+    }
+}
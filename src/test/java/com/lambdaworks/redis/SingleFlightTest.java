@@ -0,0 +1,150 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.cache.SingleFlightAsyncConnection;
+import com.lambdaworks.redis.output.StatusOutput;
+import com.lambdaworks.redis.protocol.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest extends AbstractAsyncCommandTest {
+    protected SingleFlightAsyncConnection<String, String> flight;
+
+    @Before
+    public void openFlight() throws Exception {
+        flight = new SingleFlightAsyncConnection<String, String>(async, codec, 60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void coalesce() throws Exception {
+        redis.set(key, value);
+        redis.hset("hash", "field", value);
+
+        Future<String> sleep = sleep(async);
+        List<Future<String>> gets = new ArrayList<Future<String>>();
+        List<Future<Map<String, String>>> hgetalls = new ArrayList<Future<Map<String, String>>>();
+        for (int i = 0; i < 100; i++) {
+            gets.add(flight.get(key));
+            hgetalls.add(flight.hgetall("hash"));
+        }
+        assertEquals(2, flight.getInFlight());
+        assertEquals(198, flight.getCoalesced());
+
+        assertEquals("OK", sleep.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(value, gets.get(i).get(1, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonMap("field", value), hgetalls.get(i).get(1, TimeUnit.SECONDS));
+        }
+        assertNotSame(hgetalls.get(0).get(), hgetalls.get(1).get());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    public void distinctArgs() throws Exception {
+        redis.set("a", "1");
+        redis.set("b", "2");
+        Future<String> sleep = sleep(async);
+        Future<String> a = flight.get("a");
+        Future<String> b = flight.get("b");
+        assertEquals(2, flight.getInFlight());
+        assertEquals(0, flight.getCoalesced());
+        sleep.get();
+        assertEquals("1", a.get());
+        assertEquals("2", b.get());
+    }
+
+    @Test
+    public void afterCompletion() throws Exception {
+        flight.set(key, value).get();
+        assertEquals(value, flight.get(key).get());
+        flight.set(key, "new").get();
+        assertEquals("new", flight.get(key).get());
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    public void writesNotCoalesced() throws Exception {
+        Future<String> sleep = sleep(async);
+        Future<Long> a = flight.incr(key);
+        Future<Long> b = flight.incr(key);
+        sleep.get();
+        assertEquals(1L, (long) a.get());
+        assertEquals(2L, (long) b.get());
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    public void writeEndsCoalescing() throws Exception {
+        redis.set(key, value);
+        Future<String> sleep = sleep(async);
+        Future<String> a = flight.get(key);
+        flight.set(key, "new");
+        Future<String> b = flight.get(key);
+        sleep.get();
+        assertEquals(value, a.get());
+        assertEquals("new", b.get());
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    public void dispatchFailure() throws Exception {
+        RedisAsyncConnection<String, String> closed = new RedisAsyncConnection<String, String>(
+                new LinkedBlockingQueue<Command<String, String, ?>>(), codec, 1, TimeUnit.SECONDS) {
+            @Override
+            public <T> Command<String, String, T> dispatch(Command<String, String, T> cmd) {
+                throw new RedisException("Connection is closed");
+            }
+        };
+        SingleFlightAsyncConnection<String, String> flight =
+                new SingleFlightAsyncConnection<String, String>(closed, codec, 1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                flight.get(key);
+                fail("dispatch did not fail");
+            } catch (RedisException e) {
+                assertEquals(0, flight.getInFlight());
+            }
+        }
+    }
+
+    @Test
+    public void cancelWaiter() throws Exception {
+        redis.set(key, value);
+        Future<String> sleep = sleep(async);
+        Future<String> a = flight.get(key);
+        Future<String> b = flight.get(key);
+        assertTrue(a.cancel(true));
+        sleep.get();
+        assertEquals(value, b.get());
+        assertTrue(a.isCancelled());
+    }
+
+    @Test
+    public void error() throws Exception {
+        redis.sadd(key, value);
+        RedisConnection<String, String> connection = new RedisConnection<String, String>(flight);
+        Future<String> sleep = sleep(async);
+        Future<String> a = flight.get(key);
+        sleep.get();
+        a.get();
+        try {
+            connection.get(key);
+            fail("error not thrown");
+        } catch (RedisException e) {
+            assertTrue(e.getMessage().contains("WRONGTYPE") || e.getMessage().contains("wrong kind"));
+        }
+    }
+
+    protected Future<String> sleep(RedisAsyncConnection<String, String> connection) throws Exception {
+        CommandArgs<String, String> args = new CommandArgs<String, String>(codec).add("SLEEP").add("0.2");
+        Future<String> sleep = connection.dispatch(CommandType.DEBUG, new StatusOutput<String, String>(codec), args);
+        Thread.sleep(20);
+        return sleep;
+    }
+}
@@ -0,0 +1,36 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.cluster.SlotHash;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlotHashTest {
+    @Test
+    public void crc16() throws Exception {
+        byte[] bytes = "123456789".getBytes();
+        assertEquals(0x31C3, SlotHash.crc16(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void slots() throws Exception {
+        assertEquals(12182, slot("foo"));
+        assertEquals(5061, slot("bar"));
+        assertEquals(0, slot(""));
+    }
+
+    @Test
+    public void hashTags() throws Exception {
+        assertEquals(slot("user1000"), slot("{user1000}.following"));
+        assertEquals(slot("{user1000}.following"), slot("{user1000}.followers"));
+        assertEquals(slot("bar"), slot("foo{bar}{zap}"));
+        assertEquals(slot("foo{}{bar}"), SlotHash.crc16("foo{}{bar}".getBytes(), 0, 10) & 16383);
+        assertEquals(slot("{bar"), SlotHash.crc16("{bar".getBytes(), 0, 4) & 16383);
+    }
+
+    protected int slot(String key) {
+        return SlotHash.getSlot(key.getBytes());
+    }
+}
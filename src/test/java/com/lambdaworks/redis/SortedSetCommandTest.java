@@ -4,6 +4,8 @@ package com.lambdaworks.redis;
 
 import org.junit.Test;
 
+import java.util.Iterator;
+
 import static com.lambdaworks.redis.ZStoreArgs.Builder.*;
 import static java.lang.Double.NEGATIVE_INFINITY;
 import static java.lang.Double.POSITIVE_INFINITY;
@@ -178,6 +180,31 @@ public class SortedSetCommandTest extends AbstractCommandTest {
         assertEquals(2, (long) redis.zrevrank(key, "a"));
     }
 
+    @Test
+    public void zscan() throws Exception {
+        redis.zadd(key, 1.0, "a", 2.0, "b", 3.0, "c");
+        ScanCursor<ScoredValue<String>> cursor = redis.zscan(key, ScanCursor.INITIAL);
+        assertTrue(cursor.isFinished());
+        assertEquals(3, cursor.items.size());
+        assertTrue(cursor.items.contains(sv(2.0, "b")));
+    }
+
+    @Test
+    public void zscanIterator() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            redis.zadd(key, i, "m" + i);
+        }
+
+        int count = 0;
+        Iterator<ScoredValue<String>> iterator = redis.zscanIterator(key, new ScanArgs().count(4));
+        while (iterator.hasNext()) {
+            ScoredValue<String> sv = iterator.next();
+            assertEquals("m" + (int) sv.score, sv.value);
+            count++;
+        }
+        assertEquals(50, count);
+    }
+
     @Test
     public void zscore() throws Exception {
         assertNull(redis.zscore(key, "a"));
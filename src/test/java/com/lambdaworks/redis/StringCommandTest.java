@@ -79,6 +79,13 @@ public class StringCommandTest extends AbstractCommandTest {
         assertEquals("2", redis.get("two"));
     }
 
+    @Test
+    public void psetex() throws Exception {
+        assertEquals("OK", redis.psetex(key, 10000, value));
+        assertEquals(value, redis.get(key));
+        assertTrue(redis.pttl(key) >= 9000);
+    }
+
     @Test
     public void set() throws Exception {
         assertNull(redis.get(key));
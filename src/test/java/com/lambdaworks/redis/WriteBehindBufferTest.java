@@ -0,0 +1,139 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis;
+
+import com.lambdaworks.redis.cache.WriteBehindBuffer;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindBufferTest extends AbstractAsyncCommandTest {
+    @Test
+    public void lastWriteWins() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 100; i++) {
+            buffer.set(key, "value" + i);
+        }
+        buffer.set("other", value);
+        assertEquals(2, buffer.size());
+        assertEquals(99, buffer.getCoalesced());
+        assertNull(redis.get(key));
+
+        awaitAll(buffer.flush());
+        assertEquals(0, buffer.size());
+        assertEquals(1, buffer.getCommands());
+        assertEquals("value99", redis.get(key));
+        assertEquals(value, redis.get("other"));
+        buffer.close();
+    }
+
+    @Test
+    public void hset() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, 1, TimeUnit.HOURS);
+        buffer.hset(key, "one", "a");
+        buffer.hset(key, "one", "b");
+        buffer.hset(key, "two", "c");
+        assertEquals(2, buffer.size());
+        awaitAll(buffer.flush());
+        assertEquals(1, buffer.getCommands());
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("one", "b");
+        map.put("two", "c");
+        assertEquals(map, redis.hgetall(key));
+        buffer.close();
+    }
+
+    @Test
+    public void setex() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, 1, TimeUnit.HOURS);
+        buffer.set(key, "a");
+        buffer.setex(key, 100, value);
+        awaitAll(buffer.flush());
+        assertEquals(value, redis.get(key));
+        assertTrue(redis.ttl(key) > 0);
+        buffer.close();
+    }
+
+    @Test
+    public void setReplacesHash() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, 1, TimeUnit.HOURS);
+        buffer.hset(key, "field", "a");
+        buffer.hset(key, "other", "b");
+        buffer.set(key, value);
+        assertEquals(1, buffer.size());
+        awaitAll(buffer.flush());
+        assertEquals(value, redis.get(key));
+        buffer.close();
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(10, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 25; i++) {
+            buffer.set("key" + i, "value" + i);
+            assertTrue(buffer.size() <= 10);
+        }
+        assertEquals(2, buffer.getFlushes());
+        buffer.close();
+        for (int i = 0; i < 25; i++) {
+            assertEquals("value" + i, redis.get("key" + i));
+        }
+    }
+
+    @Test
+    public void periodicFlush() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, 10, TimeUnit.MILLISECONDS);
+        buffer.set(key, value);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!value.equals(redis.get(key))) {
+            assertTrue("not flushed", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        buffer.close();
+    }
+
+    @Test
+    public void closeFlushes() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, 1, TimeUnit.HOURS);
+        buffer.set(key, value);
+        buffer.hset("hash", "field", value);
+        buffer.close();
+        assertEquals(value, redis.get(key));
+        assertEquals(value, redis.hget("hash", "field"));
+    }
+
+    @Test
+    public void closedConnection() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(2, 1, TimeUnit.HOURS);
+        async.close();
+        awaitClosed();
+        buffer.set("a", "1");
+        buffer.set("b", "2");
+        try {
+            buffer.set("c", "3");
+            fail("flush did not fail");
+        } catch (RedisException e) {
+            assertEquals(2, buffer.size());
+        }
+    }
+
+    protected WriteBehindBuffer<String, String> buffer(int maxSize, long interval, TimeUnit unit) {
+        return new WriteBehindBuffer<String, String>(async, codec, maxSize, interval, unit);
+    }
+
+    protected void awaitClosed() throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (;;) {
+            try {
+                async.ping();
+            } catch (RedisException e) {
+                return;
+            }
+            assertTrue("not closed", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
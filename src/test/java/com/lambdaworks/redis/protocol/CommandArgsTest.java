@@ -0,0 +1,138 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import com.lambdaworks.redis.codec.Utf8StringCodec;
+import com.lambdaworks.redis.output.StatusOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class CommandArgsTest {
+    protected Utf8StringCodec codec = new Utf8StringCodec();
+
+    @Test
+    public void addLong() throws Exception {
+        assertEquals("$1\r\n0\r\n", encode(args().add(0)));
+        assertEquals("$2\r\n42\r\n", encode(args().add(42)));
+        assertEquals("$3\r\n-42\r\n", encode(args().add(-42)));
+        assertEquals("$19\r\n9223372036854775807\r\n", encode(args().add(Long.MAX_VALUE)));
+        assertEquals("$20\r\n-9223372036854775808\r\n", encode(args().add(Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void addDouble() throws Exception {
+        assertEquals("$1\r\n1\r\n", encode(args().add(1.0)));
+        assertEquals("$4\r\n-2.5\r\n", encode(args().add(-2.5)));
+        assertEquals("$4\r\n+inf\r\n", encode(args().add(Double.POSITIVE_INFINITY)));
+        assertEquals("$4\r\n-inf\r\n", encode(args().add(Double.NEGATIVE_INFINITY)));
+    }
+
+    @Test
+    public void bulkHeaders() throws Exception {
+        for (int length : new int[] { 0, 9, 10, 511, 512, 513, 100000 }) {
+            char[] chars = new char[length];
+            Arrays.fill(chars, 'x');
+            String value = new String(chars);
+            assertEquals("$" + length + "\r\n" + value + "\r\n", encode(args().add(value)));
+        }
+    }
+
+    @Test
+    public void growBuffer() throws Exception {
+        CommandArgs<String, String> args = args();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            args.add(i).addKey("key" + i);
+            expected.append("$").append(Long.toString(i).length()).append("\r\n").append(i).append("\r\n");
+            expected.append("$").append(("key" + i).length()).append("\r\n").append("key").append(i).append("\r\n");
+        }
+        assertEquals(2000, args.count());
+        assertEquals(expected.toString(), encode(args));
+    }
+
+    @Test
+    public void commandHeaders() throws Exception {
+        CommandArgs<String, String> args = args();
+        for (int i = 0; i < 600; i++) {
+            args.add(i);
+        }
+        Command<String, String, String> command = command(CommandType.DEL, args);
+        ChannelBuffer buf = ChannelBuffers.dynamicBuffer(16);
+        command.encode(buf);
+        assertTrue(buf.toString(Charsets.ASCII).startsWith("*601\r\n$3\r\nDEL\r\n$1\r\n0\r\n"));
+    }
+
+    @Test
+    public void writeInt() throws Exception {
+        for (int value : new int[] { 0, 7, 10, 99, 100, 12345, Integer.MAX_VALUE }) {
+            ChannelBuffer heap = ChannelBuffers.dynamicBuffer(1);
+            ChannelBuffer direct = ChannelBuffers.directBuffer(16);
+            Command.writeInt(heap, value);
+            Command.writeInt(direct, value);
+            assertEquals(Integer.toString(value), heap.toString(Charsets.ASCII));
+            assertEquals(Integer.toString(value), direct.toString(Charsets.ASCII));
+        }
+    }
+
+    @Test
+    public void encodeWithoutGarbage() throws Exception {
+        Method allocated = allocatedBytes();
+        assumeTrue(allocated != null);
+        Object threads = ManagementFactory.getThreadMXBean();
+
+        CommandArgs<String, String> args = args().addKey("key").add(1234567).add(3.25).addValue("value");
+        Command<String, String, String> command = command(CommandType.SET, args);
+        ChannelBuffer buf = ChannelBuffers.buffer(256);
+
+        int iterations = 100000;
+        long bytes = 0;
+        for (int run = 0; run < 5; run++) {
+            long thread = Thread.currentThread().getId();
+            long start = (Long) allocated.invoke(threads, thread);
+            for (int i = 0; i < iterations; i++) {
+                buf.clear();
+                command.encode(buf);
+                Command.writeInt(buf, i);
+            }
+            bytes = (Long) allocated.invoke(threads, thread) - start;
+        }
+
+        assertTrue("allocated " + bytes + " bytes", bytes < 1024);
+    }
+
+    protected Method allocatedBytes() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try {
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (!type.isInstance(threads)) return null;
+            if (!(Boolean) type.getMethod("isThreadAllocatedMemorySupported").invoke(threads)) return null;
+            if (!(Boolean) type.getMethod("isThreadAllocatedMemoryEnabled").invoke(threads)) return null;
+            return type.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    protected CommandArgs<String, String> args() {
+        return new CommandArgs<String, String>(codec);
+    }
+
+    protected Command<String, String, String> command(CommandType type, CommandArgs<String, String> args) {
+        return new Command<String, String, String>(type, new StatusOutput<String, String>(codec), args, false);
+    }
+
+    protected String encode(CommandArgs<String, String> args) {
+        ChannelBuffer buf = ChannelBuffers.dynamicBuffer(16);
+        buf.writeBytes(args.buffer());
+        return buf.toString(Charsets.ASCII);
+    }
+}
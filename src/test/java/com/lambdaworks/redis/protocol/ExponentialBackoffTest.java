@@ -0,0 +1,44 @@
+// Copyright (C) 2013 - Will Glozer.  All rights reserved.
+
+package com.lambdaworks.redis.protocol;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ExponentialBackoffTest {
+    @Test
+    public void exponential() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(4, 512, TimeUnit.MILLISECONDS, 0, false);
+        assertEquals(4, backoff.delay(1));
+        assertEquals(8, backoff.delay(2));
+        assertEquals(512, backoff.delay(8));
+        assertEquals(512, backoff.delay(9));
+        assertEquals(512, backoff.delay(100));
+        assertEquals(512, backoff.delay(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void maxAttempts() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(1, 1, TimeUnit.SECONDS, 2, false);
+        assertEquals(1000, backoff.delay(1));
+        assertEquals(1000, backoff.delay(2));
+        assertEquals(-1, backoff.delay(3));
+    }
+
+    @Test
+    public void fullJitter() throws Exception {
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 1000, TimeUnit.MILLISECONDS, 0, true);
+        long min = Long.MAX_VALUE, max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = backoff.delay(3);
+            assertTrue(delay >= 0 && delay <= 400);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(min < 100);
+        assertTrue(max > 300);
+    }
+}